@@ -4,13 +4,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.service.MetricService;
 import org.lite.gateway.service.ApiRouteService;
+import org.lite.gateway.service.CircuitBreakerRegistryService;
+import org.lite.gateway.service.DailyQuotaService;
 import org.lite.gateway.service.impl.ApiRouteLocatorImpl;
-import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.lang.NonNull;
 import org.springframework.web.reactive.config.WebFluxConfigurer;
@@ -22,12 +22,12 @@ public class GatewayConfig implements WebFluxConfigurer {
     @Bean
     public RouteLocator routeLocator(RouteLocatorBuilder routeLocationBuilder,
                                      ApiRouteService apiRouteService,
-                                     ReactiveResilience4JCircuitBreakerFactory reactiveResilience4JCircuitBreakerFactory,
-                                     RedisTemplate<String, String> redisTemplate,
+                                     CircuitBreakerRegistryService circuitBreakerRegistryService,
+                                     DailyQuotaService dailyQuotaService,
                                      MetricService metricService,
                                      ObjectMapper objectMapper) {
         return new ApiRouteLocatorImpl(routeLocationBuilder,
-                apiRouteService, reactiveResilience4JCircuitBreakerFactory, redisTemplate, metricService, objectMapper);
+                apiRouteService, circuitBreakerRegistryService, dailyQuotaService, metricService, objectMapper);
     }
 
     @Bean
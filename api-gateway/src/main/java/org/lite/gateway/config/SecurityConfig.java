@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.filter.ApiKeyAuthenticationFilter;
 import org.lite.gateway.service.DynamicRouteService;
+import org.lite.gateway.service.TokenRelayService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
@@ -24,6 +25,7 @@ import org.springframework.security.oauth2.client.registration.ReactiveClientReg
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import reactor.core.publisher.Mono;
 import org.springframework.beans.factory.annotation.Value;
@@ -36,8 +38,6 @@ import org.springframework.http.server.reactive.ServerHttpRequest;
 
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -63,6 +63,9 @@ public class SecurityConfig {
     @Value("${cors.allowed-headers}")
     private String allowedHeaders;
 
+    @Value("${cors.exposed-headers:X-Next-Cursor}")
+    private String exposedHeaders;
+
     @Value("${cors.max-age}")
     private long maxAge;
 
@@ -94,7 +97,7 @@ public class SecurityConfig {
 
     @Bean
     public SecurityWebFilterChain jwtSecurityFilterChain(ServerHttpSecurity serverHttpSecurity, 
-            AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager authorizedClientManager) {
+            TokenRelayService tokenRelayService) {
         serverHttpSecurity
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
@@ -114,7 +117,7 @@ public class SecurityConfig {
                 .authorizeExchange(exchange -> exchange
                         .anyExchange()
                         .access(this::dynamicPathAuthorization))
-                .addFilterAt(tokenRelayWebFilter(authorizedClientManager), SecurityWebFiltersOrder.SECURITY_CONTEXT_SERVER_WEB_EXCHANGE); // Dynamic authorization
+                .addFilterAt(tokenRelayWebFilter(tokenRelayService), SecurityWebFiltersOrder.SECURITY_CONTEXT_SERVER_WEB_EXCHANGE); // Dynamic authorization
         return serverHttpSecurity.build();
     }
 
@@ -136,78 +139,64 @@ public class SecurityConfig {
     //We are injecting the gateway token here
     @Bean
     @Order(Ordered.HIGHEST_PRECEDENCE)
-    public WebFilter tokenRelayWebFilter(AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager authorizedClientManager) {
+    public WebFilter tokenRelayWebFilter(TokenRelayService tokenRelayService) {
         return (exchange, chain) -> {
             // Check if we've already processed this request
             if (exchange.getAttribute("TOKEN_RELAY_PROCESSED") != null) {
                 return chain.filter(exchange);
             }
             
-            String path = exchange.getRequest().getPath().toString();
+            String path = exchange.getRequest().getPath().value();
             // Skip token relay for certain paths
             if (path.startsWith("/actuator") || 
                 path.startsWith("/favicon")) {
                 return chain.filter(exchange);
             }
-            log.info("TokenRelayWebFilter for path: {}", path);
+            log.debug("TokenRelayWebFilter for path: {}", path);
 
             // Store the original user token if it exists
             String userToken = exchange.getRequest().getHeaders().getFirst("Authorization");
-            log.info("Incoming token: {}", userToken);
-
-            OAuth2AuthorizeRequest authorizeRequest = OAuth2AuthorizeRequest
-                    .withClientRegistrationId(clientId)
-                    .principal(clientId)
-                    .build();
-
-            return authorizedClientManager.authorize(authorizeRequest)
-                    .doOnError(error -> log.error("Error authorizing client: {}", error.getMessage()))
-                    .flatMap(authorizedClient -> {
-                        if (authorizedClient != null && authorizedClient.getAccessToken() != null) {
-                            String gatewayToken = authorizedClient.getAccessToken().getTokenValue();
-                            
-                            // Mark this request as processed
-                            exchange.getAttributes().put("TOKEN_RELAY_PROCESSED", true);
-
-                            ServerHttpRequest request = exchange.getRequest().mutate()
-                            .headers(headers -> {
-                                headers.set("Authorization", "Bearer " + gatewayToken);
-                                headers.set("Accept", "application/json");
-                                headers.set("Content-Type", "application/json");
-                                if (userToken != null) {
-                                    String token = userToken.startsWith("Bearer ") ? 
-                                        userToken.substring(7) : userToken;
-                                    headers.set("X-User-Token", token);
-                                    log.info("User token set for path: {}", path);
-                                }
-                            })
-                                .build();
 
-                            return chain.filter(exchange.mutate().request(request).build());
-                        }
-
-                        ServerHttpRequest request = exchange.getRequest().mutate()
-                            .headers(headers -> {
-                                headers.set("Accept", "application/json");
-                                headers.set("Content-Type", "application/json");
-                                if (userToken != null) {
-                                    String token = userToken.startsWith("Bearer ") ? 
-                                        userToken.substring(7) : userToken;
-                                    headers.set("X-User-Token", token);
-                                    log.info("Only user token set for path: {}", path);
-                                }
-                            })
-                            .build();
+            // Steady state, the gateway token is already cached so there is nothing to wait for
+            String gatewayAuthorization = tokenRelayService.getCachedAuthorizationHeader();
+            if (gatewayAuthorization != null) {
+                return chain.filter(relayTokens(exchange, gatewayAuthorization, userToken));
+            }
 
-                        return chain.filter(exchange.mutate().request(request).build());
-                    })
+            return tokenRelayService.getAuthorizationHeader()
+                    .map(authorization -> relayTokens(exchange, authorization, userToken))
+                    .switchIfEmpty(Mono.fromSupplier(() -> relayTokens(exchange, null, userToken)))
                     .onErrorResume(error -> {
                         log.error("Failed to authorize client for path {}: {}", path, error.getMessage());
-                        return chain.filter(exchange);
-                    });
+                        return Mono.just(exchange);
+                    })
+                    .flatMap(chain::filter);
         };
     }
 
+    // Sets the gateway token (if any) and moves the user token to X-User-Token in a single mutation
+    private ServerWebExchange relayTokens(ServerWebExchange exchange, String gatewayAuthorization, String userToken) {
+        // Mark this request as processed
+        exchange.getAttributes().put("TOKEN_RELAY_PROCESSED", true);
+
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    if (gatewayAuthorization != null) {
+                        headers.set("Authorization", gatewayAuthorization);
+                    }
+                    headers.set("Accept", "application/json");
+                    headers.set("Content-Type", "application/json");
+                    if (userToken != null) {
+                        String token = userToken.startsWith("Bearer ") ?
+                            userToken.substring(7) : userToken;
+                        headers.set("X-User-Token", token);
+                    }
+                })
+                .build();
+
+        return exchange.mutate().request(request).build();
+    }
+
     // Bean to handle OAuth2 client credentials
     // DO NOT DELETE THIS
     @Bean
@@ -254,19 +243,6 @@ public class SecurityConfig {
         return authorizedClientManager;
     }
 
-    private String getScopeKey(String path) {
-        // Updated regex to capture prefixes that may include hyphens
-        Pattern pattern = Pattern.compile("^/([\\w-]+)/");
-        Matcher matcher = pattern.matcher(path);
-
-        if (matcher.find()) {
-            String prefix = matcher.group(0);
-            return prefix + "**";
-        }
-
-        return path + "**";
-    }
-
     private Mono<AuthorizationDecision> dynamicPathAuthorization(Mono<Authentication> authenticationMono, AuthorizationContext authorizationContext) {
         String path = authorizationContext.getExchange().getRequest().getPath().toString();
         log.info("Security check for path: {}", path);
@@ -276,16 +252,10 @@ public class SecurityConfig {
         //1st step
         // Use the path matcher from the DynamicRouteService to check if the path is whitelisted.
         // whitelisted means either hard coded or read from mongodb
-        boolean isWhitelisted = dynamicRouteService.isPathWhitelisted(path);
+        boolean isWhitelisted = dynamicRouteService.isPathWhitelisted(
+                authorizationContext.getExchange().getRequest().getPath().pathWithinApplication());
         log.info("Is path {} whitelisted? {}", path, isWhitelisted);
 
-//        String prefix = "/inventory/";
-//        String scopeKey = "";
-//        if (path.startsWith(prefix)) {
-//            scopeKey = prefix + "**";
-//        }
-        String scope = dynamicRouteService.getClientScope(getScopeKey(path));//i.e. inventory/** -> inventory-service.read
-
         //2nd step - check the realm access role
         //if whitelist passes, check for roles in the JWT token for secured paths
         if (isWhitelisted) {
@@ -314,6 +284,9 @@ public class SecurityConfig {
                                 && !path.startsWith("/health/")
                                 && !path.startsWith("/fallback/")
                                 && !path.startsWith("/linq")){
+                            //i.e. inventory/** -> inventory-service.read, resolved from the local scope cache only when needed
+                            String scope = dynamicRouteService.getClientScope(
+                                    authorizationContext.getExchange().getRequest().getPath().pathWithinApplication());
                             boolean hasClientReadScope = scope != null && scopes.contains(scope);//does the client itself has the scope
                             if (!hasClientReadScope){
                                 if(scope == null) {
@@ -367,6 +340,7 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(List.of(allowedOrigins.split(",")));
         configuration.setAllowedMethods(List.of(allowedMethods.split(",")));
         configuration.setAllowedHeaders(List.of(allowedHeaders.split(",")));
+        configuration.setExposedHeaders(List.of(exposedHeaders.split(",")));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(maxAge);
 
@@ -97,7 +97,7 @@ public class ApiKeyController {
                             .switchIfEmpty(Mono.error(new AccessDeniedException(
                                 "Admin access required for team " + apiKey.getTeamId())))
                     )
-                    .then(apiKeyRepository.deleteById(id))
+                    .then(apiKeyService.deleteApiKey(id))
             );
     }
 
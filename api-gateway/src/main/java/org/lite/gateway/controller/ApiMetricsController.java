@@ -6,12 +6,16 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import org.lite.gateway.entity.ApiMetric;
+import org.lite.gateway.model.MetricsPage;
 import org.lite.gateway.service.ApiMetricsService;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -20,46 +24,46 @@ import java.util.Map;
 @Slf4j
 public class ApiMetricsController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ApiMetricsService apiMetricsService;
 
+    /**
+     * One page, newest first, the cursor for the next page comes back in the X-Next-Cursor header.
+     * With fields only those properties (plus id and timestamp) are returned, unrequested ones are left out
+     * rather than sent with default values.
+     */
     @GetMapping
-    public Flux<ApiMetric> getMetrics(
+    public Mono<ResponseEntity<List<?>>> getMetrics(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @RequestParam(required = false) String fromService,
-            @RequestParam(required = false) String toService) {
-        
-        // If we're filtering by service but no dates provided, don't restrict the date range
-        if ((fromService != null || toService != null) && startDate == null && endDate == null) {
-            startDate = LocalDateTime.MIN;
-            endDate = LocalDateTime.now();
-        } else {
-            // Only apply default date range if no filters are provided at all
-            if (startDate == null) {
-                startDate = LocalDateTime.now().minusMonths(1);
-            }
-            if (endDate == null) {
-                endDate = LocalDateTime.now();
-            }
-        }
+            @RequestParam(required = false) String toService,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> fields) {
+
+        log.debug("Fetching metrics - startDate: {}, endDate: {}, fromService: {}, toService: {}, cursor: {}",
+                 startDate, endDate, fromService, toService, cursor);
+
+        return apiMetricsService.getMetricsPage(startDate, endDate, fromService, toService, cursor, limit, fields)
+            .map(page -> toPageResponse(page, fields))
+            .doOnError(error -> {
+                log.error("Error fetching metrics: {}", error.getMessage(), error);
+            });
+    }
 
-        // Validate date range
-        if (startDate.isAfter(endDate)) {
-            return Flux.error(new IllegalArgumentException("Start date must be before end date"));
-        }
+    // Bulk export as NDJSON, read from mongodb page by page only as fast as the client consumes it
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<?> exportMetrics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String fromService,
+            @RequestParam(required = false) String toService,
+            @RequestParam(required = false) List<String> fields) {
 
-        log.debug("Fetching metrics - startDate: {}, endDate: {}, fromService: {}, toService: {}",
-                 startDate, endDate, fromService, toService);
-
-        try {
-            return apiMetricsService.getMetrics(startDate, endDate, fromService, toService)
-                .doOnError(error -> {
-                    log.error("Error fetching metrics: {}", error.getMessage(), error);
-                });
-        } catch (Exception e) {
-            log.error("Unexpected error in getMetrics: {}", e.getMessage(), e);
-            return Flux.error(e);
-        }
+        return apiMetricsService.exportMetrics(startDate, endDate, fromService, toService, fields)
+                .map(metric -> selectFields(metric, fields));
     }
 
     @GetMapping("/summary")
@@ -119,7 +123,46 @@ public class ApiMetricsController {
     }
 
     @GetMapping("/service/{serviceName}")
-    public Flux<ApiMetric> getMetricsByService(@PathVariable String serviceName) {
-        return apiMetricsService.getMetricsByService(serviceName);
+    public Mono<ResponseEntity<List<?>>> getMetricsByService(
+            @PathVariable String serviceName,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> fields) {
+        return apiMetricsService.getMetricsByService(serviceName, cursor, limit, fields)
+                .map(page -> toPageResponse(page, fields));
+    }
+
+    private ResponseEntity<List<?>> toPageResponse(MetricsPage page, List<String> fields) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().encode());
+        }
+        return response.body(page.items().stream().map(metric -> selectFields(metric, fields)).toList());
+    }
+
+    // The metric as is without fields, otherwise only the requested properties, the query already rejected unknown ones
+    private Object selectFields(ApiMetric metric, List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return metric;
+        }
+        Map<String, Object> selected = new LinkedHashMap<>();
+        selected.put("id", metric.getId());
+        selected.put("timestamp", metric.getTimestamp());
+        for (String field : fields) {
+            switch (field) {
+                case "fromService" -> selected.put(field, metric.getFromService());
+                case "toService" -> selected.put(field, metric.getToService());
+                case "duration" -> selected.put(field, metric.getDuration());
+                case "routeIdentifier" -> selected.put(field, metric.getRouteIdentifier());
+                case "interactionType" -> selected.put(field, metric.getInteractionType());
+                case "gatewayBaseUrl" -> selected.put(field, metric.getGatewayBaseUrl());
+                case "pathEndPoint" -> selected.put(field, metric.getPathEndPoint());
+                case "queryParameters" -> selected.put(field, metric.getQueryParameters());
+                case "requestPayload" -> selected.put(field, metric.getRequestPayload());
+                case "success" -> selected.put(field, metric.isSuccess());
+                default -> { }
+            }
+        }
+        return selected;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,27 @@
+package org.lite.gateway.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.dto.CircuitBreakerStats;
+import org.lite.gateway.service.CircuitBreakerRegistryService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/circuit-breakers")
+@RequiredArgsConstructor
+@Slf4j
+public class CircuitBreakerController {
+
+    private final CircuitBreakerRegistryService circuitBreakerRegistryService;
+
+    @GetMapping
+    public ResponseEntity<List<CircuitBreakerStats>> getCircuitBreakers() {
+        log.debug("REST request to get all circuit breakers");
+        return ResponseEntity.ok(circuitBreakerRegistryService.getCircuitBreakerStats());
+    }
+}
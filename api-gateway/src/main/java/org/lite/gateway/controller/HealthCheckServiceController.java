@@ -2,22 +2,24 @@ package org.lite.gateway.controller;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.lite.gateway.service.HealthCheckEngine;
 import org.lite.gateway.service.HealthCheckService;
 import org.lite.gateway.service.MetricsAggregator;
 import org.lite.gateway.model.TrendAnalysis;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
 
 import org.lite.gateway.model.DashboardUpdate;
@@ -30,44 +32,53 @@ public class HealthCheckServiceController {
     private final HealthCheckService healthCheckService;
     private final MetricsAggregator metricsAggregator;
     private final SimpMessagingTemplate simpMessagingTemplate;
-    private final ScheduledExecutorService scheduler;
+    private final HealthCheckEngine healthCheckEngine;
+    private Disposable updateSubscription;
+
+    // Probe results arriving within this window are pushed to the dashboard together
+    @Value("${health.engine.publish-interval:1s}")
+    private Duration publishInterval;
 
     public HealthCheckServiceController(
             SimpMessagingTemplate simpMessagingTemplate,
             HealthCheckService healthCheckService,
-            MetricsAggregator metricsAggregator) {
+            MetricsAggregator metricsAggregator,
+            HealthCheckEngine healthCheckEngine) {
         this.simpMessagingTemplate = simpMessagingTemplate;
         this.healthCheckService = healthCheckService;
         this.metricsAggregator = metricsAggregator;
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
-        startCheckUpdates();
+        this.healthCheckEngine = healthCheckEngine;
     }
 
-    // Send updates every 5 seconds
-    private void startCheckUpdates() {
-        scheduler.scheduleAtFixedRate(this::sendHealthUpdate, 0, 5, TimeUnit.SECONDS);
+    // Push whenever the health check engine has new probe results, no probing or mongodb lookups here
+    @PostConstruct
+    public void startCheckUpdates() {
+        updateSubscription = healthCheckEngine.updates()
+            .sample(publishInterval)
+            .subscribe(status -> {
+                try {
+                    sendHealthUpdate();
+                } catch (RuntimeException e) {
+                    // keep the subscription alive for the next results
+                    log.error("Error publishing health update: {}", e.getMessage());
+                }
+            });
     }
 
     private void sendHealthUpdate() {
-        healthCheckService.getHealthCheckEnabledRoutes()
-            .flatMap(route -> healthCheckService.getServiceStatus(route.getRouteIdentifier())
-                .map(status -> new DashboardUpdate(
-                    route.getRouteIdentifier(),
-                    status,
-                    metricsAggregator.analyzeTrends(route.getRouteIdentifier())
-                ))
-                .onErrorResume(e -> {
-                    log.error("Error getting status for {}: {}", route.getRouteIdentifier(), e.getMessage());
-                    return Mono.empty();
-                })
-            )
-            .collectList()
-            .subscribe(this::sendHealthUpdate);
+        List<DashboardUpdate> payload = healthCheckEngine.getLatestStatuses().entrySet().stream()
+            .map(entry -> new DashboardUpdate(
+                entry.getKey(),
+                entry.getValue(),
+                metricsAggregator.analyzeTrends(entry.getKey())
+            ))
+            .toList();
+        sendHealthUpdate(payload);
     }
 
     private void sendHealthUpdate(List<DashboardUpdate> payload) {
         try {
-            log.info("sendHealthUpdate {}", payload);
+            log.debug("sendHealthUpdate {}", payload);
             simpMessagingTemplate.convertAndSend("/topic/health", payload);
         } catch (MessageDeliveryException e) {
             log.warn("Failed to send health update: {}", e.getMessage());
@@ -83,7 +94,9 @@ public class HealthCheckServiceController {
 
     @PreDestroy
     public void cleanup() {
-        scheduler.shutdown();
+        if (updateSubscription != null) {
+            updateSubscription.dispose();
+        }
     }
 
     @GetMapping("/data/{serviceId}")
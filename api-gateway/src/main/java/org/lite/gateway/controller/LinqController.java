@@ -2,15 +2,20 @@ package org.lite.gateway.controller;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.dto.LinqBatchResult;
 import org.lite.gateway.dto.LinqRequest;
 import org.lite.gateway.dto.LinqResponse;
 import org.lite.gateway.service.LinqService;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/linq")
 @Slf4j
@@ -23,4 +28,10 @@ public class LinqController {
     public Mono<LinqResponse> handleLinqRequest(@RequestBody LinqRequest request) {
         return linqService.processLinqRequest(request);
     }
+
+    // Streams one result per request as NDJSON (or SSE with Accept: text/event-stream), in the order of the requests
+    @PostMapping(value = "/batch", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<LinqBatchResult> handleLinqBatch(@RequestBody List<LinqRequest> requests) {
+        return linqService.processLinqBatch(requests);
+    }
 }
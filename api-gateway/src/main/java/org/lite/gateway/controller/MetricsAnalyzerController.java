@@ -7,6 +7,7 @@ import org.lite.gateway.service.MetricsAggregator;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.*;
 
@@ -30,30 +31,27 @@ public class MetricsAnalyzerController {
             @PathVariable String serviceId,
             @RequestParam String metric) {
         
-        return Mono.just(metricsAggregator.getMetricsHistory(serviceId))
-                .map(history -> history.getOrDefault(metric, Collections.emptyList()))
-                .map(points -> {
-                    if (points.isEmpty()) {
-                        return ResponseEntity.notFound().build();
-                    }
-                    MetricAnalysis analysis = metricsAnalyzer.analyzeMetric(points);
-                    return ResponseEntity.ok(analysis);
-                });
+        return Mono.fromSupplier(() -> metricsAggregator.getMetricBuffers(serviceId).get(metric))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(buffer -> ResponseEntity.ok(metricsAnalyzer.analyzeMetric(buffer)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{serviceId}/summary")
     public Mono<ResponseEntity<Map<String, MetricAnalysis>>> getMetricsSummary(
             @PathVariable String serviceId) {
         
-        return Mono.just(metricsAggregator.getMetricsHistory(serviceId))
-                .map(history -> {
-                    if (history.isEmpty()) {
+        return Mono.fromSupplier(() -> metricsAggregator.getMetricBuffers(serviceId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(buffers -> {
+                    if (buffers.isEmpty()) {
                         return ResponseEntity.notFound().build();
                     }
 
+                    // O(1) per metric, the buffers keep their statistics up to date as points come in
                     Map<String, MetricAnalysis> summary = new HashMap<>();
-                    history.forEach((metric, points) -> {
-                        summary.put(metric, metricsAnalyzer.analyzeMetric(points));
+                    buffers.forEach((metric, buffer) -> {
+                        summary.put(metric, metricsAnalyzer.analyzeMetric(buffer));
                     });
 
                     return ResponseEntity.ok(summary);
@@ -65,17 +63,14 @@ public class MetricsAnalyzerController {
             @PathVariable String serviceId,
             @RequestParam String metric) {
         
-        return Mono.just(metricsAggregator.getMetricsHistory(serviceId))
-                .map(history -> history.getOrDefault(metric, Collections.emptyList()))
-                .map(points -> {
-                    if (points.isEmpty()) {
-                        return ResponseEntity.notFound().build();
-                    }
-
-                    MetricAnalysis analysis = metricsAnalyzer.analyzeMetric(points);
+        return Mono.fromSupplier(() -> metricsAggregator.getMetricBuffers(serviceId).get(metric))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(buffer -> {
+                    MetricAnalysis analysis = metricsAnalyzer.analyzeMetric(buffer);
                     List<String> recommendations = analysis.getRecommendations();
                     
                     return ResponseEntity.ok(recommendations);
-                });
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 } 
\ No newline at end of file
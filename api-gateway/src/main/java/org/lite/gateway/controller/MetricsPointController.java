@@ -5,6 +5,7 @@ import org.lite.gateway.service.MetricsAggregator;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Collections;
@@ -25,7 +26,8 @@ public class MetricsPointController {
 
     @GetMapping("/{serviceId}/current")
     public Mono<ResponseEntity<Map<String, Double>>> getCurrentMetrics(@PathVariable String serviceId) {
-        return Mono.just(metricsAggregator.getMetricsHistory(serviceId))
+        return Mono.fromSupplier(() -> metricsAggregator.getMetricsHistory(serviceId))
+                .subscribeOn(Schedulers.boundedElastic())
                 .map(history -> {
                     if (history.isEmpty()) {
                         return ResponseEntity.notFound().build();
@@ -47,7 +49,8 @@ public class MetricsPointController {
             @PathVariable String serviceId,
             @PathVariable String metric) {
         
-        return Mono.just(metricsAggregator.getMetricsHistory(serviceId))
+        return Mono.fromSupplier(() -> metricsAggregator.getMetricsHistory(serviceId))
+                .subscribeOn(Schedulers.boundedElastic())
                 .map(history -> {
                     List<MetricPoint> points = history.getOrDefault(metric, Collections.emptyList());
                     if (points.isEmpty()) {
@@ -61,7 +64,8 @@ public class MetricsPointController {
     public Mono<ResponseEntity<Map<String, List<MetricPoint>>>> getAllMetrics(
             @PathVariable String serviceId) {
         
-        return Mono.just(metricsAggregator.getMetricsHistory(serviceId))
+        return Mono.fromSupplier(() -> metricsAggregator.getMetricsHistory(serviceId))
+                .subscribeOn(Schedulers.boundedElastic())
                 .map(history -> {
                     if (history.isEmpty()) {
                         return ResponseEntity.notFound().build();
@@ -3,12 +3,15 @@ package org.lite.gateway.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.dto.ServiceDTO;
+import org.lite.gateway.model.HealthSnapshot;
 import org.lite.gateway.service.ServiceRegistryService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import reactor.core.publisher.Flux;
+
+import java.util.Collection;
 
 @RestController
 @RequestMapping("/api/services")
@@ -18,9 +21,14 @@ public class ServiceController {
 
     private final ServiceRegistryService serviceRegistryService;
 
+    // Weak etag of the health state, a matching If-None-Match gets a 304 even if only lastChecked or uptime moved since
     @GetMapping
-    public ResponseEntity<Flux<ServiceDTO>> getAllServices() {
+    public ResponseEntity<Collection<ServiceDTO>> getAllServices() {
         log.debug("REST request to get all services");
-        return ResponseEntity.ok(serviceRegistryService.getAllServices());
+        HealthSnapshot snapshot = serviceRegistryService.getSnapshot();
+        return ResponseEntity.ok()
+            .eTag(snapshot.etag())
+            .cacheControl(CacheControl.noCache())
+            .body(snapshot.serviceList());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package org.lite.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CircuitBreakerStats {
+    private String routeId;
+    private String name;
+    private String fingerprint;  // hash of the route's CircuitBreakerRecord, changes when the config changes
+    private String state;        // CLOSED, OPEN, HALF_OPEN, ...
+    private float failureRate;   // -1 until the sliding window has enough calls
+    private float slowCallRate;  // -1 until the sliding window has enough calls
+    private int bufferedCalls;
+    private int failedCalls;
+    private long notPermittedCalls;
+}
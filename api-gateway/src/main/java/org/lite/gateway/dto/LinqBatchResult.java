@@ -0,0 +1,17 @@
+package org.lite.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LinqBatchResult {
+    private int index;              // position of the request in the batch, results are streamed in this order
+    private String status;          // "success" or "error"
+    private LinqResponse response;  // null when status is "error"
+    private String error;           // e.g., "Team does not have USE permission for inventory-service"
+}
@@ -4,6 +4,13 @@ import lombok.Data;
 import lombok.Builder;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
+import org.lite.gateway.model.ServiceHealthStatus;
+import org.lite.gateway.model.TrendAnalysis;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -16,6 +23,50 @@ public class ServiceDTO {
     private ServiceTrends trends;
     private String uptime;
     private String lastChecked;
+
+    // What stays the same between probes of an unchanged service: status, trend directions and metrics rounded to
+    // whole percents and a power of two response time, so measurement noise isn't reported as a change
+    public List<Object> healthState() {
+        return Arrays.asList(
+            serviceId,
+            status,
+            metrics == null ? null : Math.round(metrics.getCpu()),
+            metrics == null ? null : Math.round(metrics.getMemory()),
+            metrics == null ? null : 64 - Long.numberOfLeadingZeros(metrics.getResponseTime()),
+            trends == null ? null : Arrays.asList(
+                TrendInfo.direction(trends.getCpu()),
+                TrendInfo.direction(trends.getMemory()),
+                TrendInfo.direction(trends.getResponseTime())));
+    }
+
+    // Route known to the gateway but not probed yet, or with its health check disabled
+    public static ServiceDTO unknown(String serviceId) {
+        return ServiceDTO.builder()
+            .serviceId(serviceId)
+            .status("DOWN")
+            .build();
+    }
+
+    public static ServiceDTO from(String serviceId, ServiceHealthStatus health) {
+        Map<String, Double> metrics = health.getMetrics();
+        Map<String, TrendAnalysis> trends = health.getTrends();
+        return ServiceDTO.builder()
+            .serviceId(serviceId)
+            .status(health.getStatus())
+            .metrics(metrics == null || metrics.isEmpty() ? null : ServiceMetrics.builder()
+                .cpu(metrics.getOrDefault("cpu", 0.0))
+                .memory(metrics.getOrDefault("memory", 0.0))
+                .responseTime(metrics.getOrDefault("responseTime", 0.0).longValue())
+                .build())
+            .trends(trends == null || trends.isEmpty() ? null : ServiceTrends.builder()
+                .cpu(TrendInfo.from(trends.get("cpu")))
+                .memory(TrendInfo.from(trends.get("memory")))
+                .responseTime(TrendInfo.from(trends.get("responseTime")))
+                .build())
+            .uptime(health.getFormattedUptime())
+            .lastChecked(Instant.ofEpochMilli(health.getLastChecked()).toString())
+            .build();
+    }
 }
 
 @Data
@@ -45,4 +96,12 @@ class ServiceTrends {
 class TrendInfo {
     private String direction;
     private double percentageChange;
+
+    static String direction(TrendInfo trend) {
+        return trend == null ? null : trend.getDirection();
+    }
+
+    static TrendInfo from(TrendAnalysis trend) {
+        return trend == null ? null : new TrendInfo(trend.getDirection().name(), trend.getPercentageChange());
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,88 @@
+package org.lite.gateway.entity;
+
+import lombok.Data;
+import org.lite.gateway.enums.InteractionType;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// Compact form of an ApiMetric in the apiMetricSeries time-series collection, short field names and coded enums
+@Data
+@Document("apiMetricSeries")
+public class ApiMetricPoint {
+    @Id
+    private String id;
+    @Field("t")
+    private Instant timestamp;       // time field of the collection
+    @Field("m")
+    private Meta meta;               // meta field, mongodb buckets points by it
+    @Field("d")
+    private long duration;           // in milliseconds
+    @Field("p")
+    private String pathEndPoint;
+    @Field("i")
+    private int interactionType;     // InteractionType code
+    @Field("ok")
+    private boolean success;
+    @Field("q")
+    private String queryParameters;  // only written when present
+    @Field("b")
+    private String requestPayload;   // only written when present
+
+    @Data
+    public static class Meta {
+        @Field("r")
+        private String routeIdentifier;
+        @Field("f")
+        private String fromService;
+        @Field("s")
+        private String toService;
+        @Field("g")
+        private String gatewayBaseUrl;
+    }
+
+    public static ApiMetricPoint from(ApiMetric metric) {
+        Meta meta = new Meta();
+        meta.setRouteIdentifier(metric.getRouteIdentifier());
+        meta.setFromService(metric.getFromService());
+        meta.setToService(metric.getToService());
+        meta.setGatewayBaseUrl(metric.getGatewayBaseUrl());
+
+        ApiMetricPoint point = new ApiMetricPoint();
+        point.setTimestamp(metric.getTimestamp() != null
+                ? metric.getTimestamp().atZone(ZoneId.systemDefault()).toInstant()
+                : Instant.now());
+        point.setMeta(meta);
+        point.setDuration(metric.getDuration());
+        point.setPathEndPoint(metric.getPathEndPoint());
+        point.setInteractionType(InteractionType.codeOf(metric.getInteractionType()));
+        point.setSuccess(metric.isSuccess());
+        point.setQueryParameters(metric.getQueryParameters());
+        point.setRequestPayload(metric.getRequestPayload());
+        return point;
+    }
+
+    // Back to the shape the REST API has always returned
+    public ApiMetric toApiMetric() {
+        ApiMetric metric = new ApiMetric();
+        metric.setId(id);
+        metric.setTimestamp(timestamp != null ? LocalDateTime.ofInstant(timestamp, ZoneId.systemDefault()) : null);
+        if (meta != null) {
+            metric.setRouteIdentifier(meta.getRouteIdentifier());
+            metric.setFromService(meta.getFromService());
+            metric.setToService(meta.getToService());
+            metric.setGatewayBaseUrl(meta.getGatewayBaseUrl());
+        }
+        metric.setDuration(duration);
+        metric.setPathEndPoint(pathEndPoint);
+        metric.setInteractionType(InteractionType.nameOf(interactionType));
+        metric.setSuccess(success);
+        metric.setQueryParameters(queryParameters);
+        metric.setRequestPayload(requestPayload);
+        return metric;
+    }
+}
@@ -0,0 +1,31 @@
+package org.lite.gateway.entity;
+
+import lombok.Data;
+import org.lite.gateway.enums.RollupGranularity;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+// Pre-aggregated ApiMetric counters of one route endpoint in one time bucket, written by MetricsRollupService
+@Data
+@Document("apiMetricRollups")
+public class ApiMetricRollup {
+    @Id
+    private String id;               // granularity, bucket and endpoint, so every gateway upserts the same document
+    private RollupGranularity granularity;
+    private Instant bucketStart;
+    private String routeIdentifier;
+    private String fromService;
+    private String toService;
+    private String pathEndPoint;
+    private String interactionType;
+    private long count;
+    private long successCount;
+    private long durationSum;        // in milliseconds
+    private long durationMin;
+    private long durationMax;
+    private Map<String, Long> latency; // LatencyHistogram buckets
+    private Instant expireAt;        // TTL index, set from the granularity's retention
+}
@@ -22,4 +22,5 @@ public class LinqTool {
     private Map<String, String> headers; // e.g., {"Authorization": "Bearer YOUR_API_KEY"}
     private List<String> supportedIntents; // e.g., ["generate", "summarize"]
     private String team;              // e.g., "ai_team" (RBAC scope)
+    private Long cacheTtlSeconds;     // e.g., 60, 0 disables caching for this target, null uses linq.cache.ttl
 }
@@ -0,0 +1,35 @@
+package org.lite.gateway.enums;
+
+import lombok.Getter;
+
+// Kind of call an ApiMetric records, stored as its code in the compact metric schema
+@Getter
+public enum InteractionType {
+    APP_TO_APP(0),
+    USER_TO_APP(1);
+
+    private final int code;
+
+    InteractionType(int code) {
+        this.code = code;
+    }
+
+    // -1 for null or unknown names
+    public static int codeOf(String name) {
+        for (InteractionType type : InteractionType.values()) {
+            if (type.name().equals(name)) {
+                return type.code;
+            }
+        }
+        return -1;
+    }
+
+    public static String nameOf(int code) {
+        for (InteractionType type : InteractionType.values()) {
+            if (type.code == code) {
+                return type.name();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,7 @@
+package org.lite.gateway.enums;
+
+// What the metrics writer does with new metrics when its queue is (nearly) full
+public enum MetricsOverflowPolicy {
+    DROP,   // drop new metrics once the queue is full
+    SAMPLE  // above the sampling threshold keep only one of every sample-rate metrics, drop once full
+}
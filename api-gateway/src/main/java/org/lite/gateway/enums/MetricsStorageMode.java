@@ -0,0 +1,7 @@
+package org.lite.gateway.enums;
+
+// Where raw ApiMetric documents are written, see MetricsStorageService
+public enum MetricsStorageMode {
+    DOCUMENT,   // regular apiMetrics collection, one verbose document per request
+    TIMESERIES  // apiMetricSeries time-series collection with the compact ApiMetricPoint schema
+}
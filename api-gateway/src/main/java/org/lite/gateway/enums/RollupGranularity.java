@@ -0,0 +1,37 @@
+package org.lite.gateway.enums;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+// Bucket size of an ApiMetricRollup, every metric is counted in one bucket of each granularity
+@Getter
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    // Start of the bucket the instant falls in, days are UTC days
+    public Instant bucketStart(Instant instant) {
+        return instant.truncatedTo(unit);
+    }
+
+    // Finest granularity that keeps the number of buckets per series in the low hundreds
+    public static RollupGranularity forRange(Duration range) {
+        if (range.compareTo(Duration.ofHours(6)) <= 0) {
+            return MINUTE;
+        }
+        if (range.compareTo(Duration.ofDays(14)) <= 0) {
+            return HOUR;
+        }
+        return DAY;
+    }
+}
@@ -0,0 +1,53 @@
+package org.lite.gateway.filter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.lang.NonNull;
+import reactor.core.publisher.Flux;
+
+/**
+ * Request whose body was read once into a pooled Netty buffer so it can be replayed on every retry attempt.
+ * Each subscription gets a retained duplicate of the same memory (no copy), which the downstream write releases.
+ * The owner must call {@link #release()} once all attempts are done.
+ */
+public class CachedBodyRequest extends ServerHttpRequestDecorator {
+
+    private static final NettyDataBufferFactory BUFFER_FACTORY = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    private final ByteBuf cachedBody;
+
+    public CachedBodyRequest(ServerHttpRequest delegate, DataBuffer body) {
+        super(delegate);
+        this.cachedBody = toByteBuf(body);
+    }
+
+    @Override
+    public @NonNull Flux<DataBuffer> getBody() {
+        return Flux.defer(() -> Flux.just(BUFFER_FACTORY.wrap(cachedBody.retainedDuplicate())));
+    }
+
+    public void release() {
+        if (cachedBody.refCnt() > 0) {
+            cachedBody.release();
+        }
+    }
+
+    private static ByteBuf toByteBuf(DataBuffer body) {
+        // Joined Netty buffers are already a (composite) pooled ByteBuf, take it over as is
+        if (body instanceof NettyDataBuffer nettyDataBuffer) {
+            return nettyDataBuffer.getNativeBuffer();
+        }
+        ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer(body.readableByteCount());
+        try (DataBuffer.ByteBufferIterator iterator = body.readableByteBuffers()) {
+            iterator.forEachRemaining(byteBuf::writeBytes);
+        }
+        DataBufferUtils.release(body);
+        return byteBuf;
+    }
+}
@@ -0,0 +1,97 @@
+package org.lite.gateway.filter;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.Exceptions;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reactor Scheduler backed by a single Netty HashedWheelTimer. Arming and cancelling a timeout is O(1) and needs no
+ * thread hand-off, which makes it cheap enough to use for a Mono.timeout on every proxied request.
+ * Only meant for short timer callbacks, the heavy work stays on the Netty event loops.
+ */
+@Slf4j
+public final class HashedWheelTimerScheduler implements Scheduler {
+
+    private static final HashedWheelTimerScheduler SHARED = new HashedWheelTimerScheduler("gateway-timeout-timer", 10, 512);
+
+    private final HashedWheelTimer timer;
+
+    private HashedWheelTimerScheduler(String name, long tickMillis, int ticksPerWheel) {
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory(name, true), tickMillis, TimeUnit.MILLISECONDS, ticksPerWheel);
+    }
+
+    public static HashedWheelTimerScheduler shared() {
+        return SHARED;
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        return schedule(task, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = timer.newTimeout(t -> run(task), delay, unit);
+        return timeout::cancel;
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new WheelWorker();
+    }
+
+    @Override
+    public void dispose() {
+        // The shared timer lives as long as the gateway, we never stop it
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            log.error("Error in scheduled timer task: {}", e.getMessage(), e);
+        }
+    }
+
+    private final class WheelWorker implements Worker {
+
+        private final Disposable.Composite tasks = Disposables.composite();
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            return schedule(task, 0, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            if (tasks.isDisposed()) {
+                throw Exceptions.failWithRejected();
+            }
+            Disposable.Swap pending = Disposables.swap();
+            Timeout timeout = timer.newTimeout(t -> {
+                tasks.remove(pending);
+                run(task);
+            }, delay, unit);
+            pending.update(timeout::cancel);
+            tasks.add(pending);
+            return pending;
+        }
+
+        @Override
+        public void dispose() {
+            tasks.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return tasks.isDisposed();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.lite.gateway.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.util.BoundedTtlCache;
+import org.springframework.beans.BeansException;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.context.ApplicationContext;
+import org.springframework.lang.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RedisRateLimiter with a per-node token bucket in front of it. The node leases batches of leaseSize tokens from the
+ * shared Redis bucket (same keys, same replenishRate/burstCapacity) and spends them locally without any Redis call.
+ * A new lease is taken in the background once the local budget runs low. When the local budget is empty and no lease
+ * is granted, the request falls back to the strict one-token Redis check.
+ * Larger leases mean fewer Redis calls but a coarser cluster-wide limit, leased tokens that are not spent within
+ * leaseTtl are lost, so the limiter can only get stricter than the plain RedisRateLimiter, never looser.
+ * Local buckets are dropped once their lease has expired and at most maxLocalKeys are kept, a dropped bucket only
+ * costs the next request an inline lease. X-RateLimit-Remaining-Tokens of a locally allowed request is what is left of
+ * this node's lease, an approximation of the shared bucket rather than its actual level.
+ */
+@Slf4j
+public class HybridRedisRateLimiter extends RedisRateLimiter {
+
+    private final RedisRateLimiter leaseRateLimiter;
+    private final RedisRateLimiter.Config localConfig;
+    private final int leaseSize;
+    private final int requestedTokens;
+    private final long leaseTtlNanos;
+    private final long leaseTtlMillis;
+    private final long refillThreshold;
+    private final BoundedTtlCache<String, LocalBucket> localBuckets;
+
+    public HybridRedisRateLimiter(int replenishRate, int burstCapacity, int requestedTokens, int leaseSize, Duration leaseTtl,
+                                  int maxLocalKeys) {
+        super(replenishRate, burstCapacity, requestedTokens);
+        // A lease can never be larger than what the Redis bucket can hold
+        this.leaseSize = Math.min(leaseSize, burstCapacity);
+        this.requestedTokens = requestedTokens;
+        this.leaseTtlNanos = leaseTtl.toNanos();
+        this.leaseTtlMillis = Math.max(1, leaseTtl.toMillis());
+        this.localBuckets = new BoundedTtlCache<>(maxLocalKeys);
+        this.refillThreshold = Math.max(1, this.leaseSize / 4);
+        this.leaseRateLimiter = new RedisRateLimiter(replenishRate, burstCapacity, this.leaseSize);
+        this.localConfig = new RedisRateLimiter.Config()
+                .setReplenishRate(replenishRate)
+                .setBurstCapacity(burstCapacity)
+                .setRequestedTokens(requestedTokens);
+    }
+
+    @Override
+    public void setApplicationContext(@NonNull ApplicationContext context) throws BeansException {
+        super.setApplicationContext(context);
+        leaseRateLimiter.setApplicationContext(context);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        String key = routeId + ":" + id;
+        LocalBucket bucket = localBuckets.get(key);
+        if (bucket == null) {
+            // kept as long as the first lease would live, a lost race only means one more lease
+            bucket = new LocalBucket();
+            localBuckets.put(key, bucket, System.currentTimeMillis() + leaseTtlMillis);
+        }
+        long remaining = bucket.tryConsume(requestedTokens, System.nanoTime());
+        if (remaining >= 0) {
+            if (remaining <= refillThreshold) {
+                refillInBackground(bucket, key, routeId, id);
+            }
+            return Mono.just(new Response(true, getHeaders(localConfig, remaining)));
+        }
+
+        // Local budget is empty, lease a new batch inline unless another request is already doing it
+        if (bucket.leasing.compareAndSet(false, true)) {
+            LocalBucket leasingBucket = bucket;
+            return lease(leasingBucket, key, routeId, id)
+                    .flatMap(granted -> {
+                        long left = granted ? leasingBucket.tryConsume(requestedTokens, System.nanoTime()) : -1;
+                        if (left >= 0) {
+                            return Mono.just(new Response(true, getHeaders(localConfig, left)));
+                        }
+                        return super.isAllowed(routeId, id);
+                    });
+        }
+        return super.isAllowed(routeId, id);
+    }
+
+    private void refillInBackground(LocalBucket bucket, String key, String routeId, String id) {
+        if (bucket.leasing.compareAndSet(false, true)) {
+            lease(bucket, key, routeId, id).subscribe();
+        }
+    }
+
+    // Takes leaseSize tokens from the shared Redis bucket in one call, the caller must hold the leasing flag
+    private Mono<Boolean> lease(LocalBucket bucket, String key, String routeId, String id) {
+        return leaseRateLimiter.isAllowed(routeId, id)
+                .map(response -> {
+                    if (response.isAllowed()) {
+                        bucket.grant(leaseSize, System.nanoTime() + leaseTtlNanos);
+                        // the bucket lives as long as its lease, an idle key is dropped after that
+                        localBuckets.put(key, bucket, System.currentTimeMillis() + leaseTtlMillis);
+                        log.debug("Leased {} tokens for route: {}, key: {}", leaseSize, routeId, id);
+                    }
+                    return response.isAllowed();
+                })
+                .onErrorResume(e -> {
+                    log.error("Error leasing rate limiter tokens for route {}: {}", routeId, e.getMessage());
+                    return Mono.just(false);
+                })
+                .doFinally(signal -> bucket.leasing.set(false));
+    }
+
+    private static final class LocalBucket {
+        private final AtomicLong tokens = new AtomicLong();
+        private final AtomicBoolean leasing = new AtomicBoolean();
+        private volatile long expiresAt = System.nanoTime();
+
+        // Returns the tokens left after taking count tokens, or -1 if the bucket has too few or its lease expired
+        long tryConsume(int count, long now) {
+            if (now - expiresAt >= 0) {
+                return -1;
+            }
+            long current;
+            do {
+                current = tokens.get();
+                if (current < count) {
+                    return -1;
+                }
+            } while (!tokens.compareAndSet(current, current - count));
+            return current - count;
+        }
+
+        void grant(long count, long newExpiresAt) {
+            boolean expired = System.nanoTime() - expiresAt >= 0;
+            if (expired) {
+                tokens.set(count); // tokens of an expired lease are dropped
+            } else {
+                tokens.addAndGet(count);
+            }
+            expiresAt = newExpiresAt;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.lite.gateway.filter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Bounded copy of a request body taken while the body streams to the downstream service.
+ * Keeps at most maxBytes in a pooled Netty buffer and/or a SHA-256 over the whole body, never the full body.
+ */
+@Slf4j
+public class PayloadCapture {
+
+    private final int maxBytes;
+    private final MessageDigest digest;
+    private ByteBuf captured;
+    private long totalBytes;
+    private boolean sealed;
+
+    public PayloadCapture(int maxBytes, boolean hashPayload) {
+        this.maxBytes = maxBytes;
+        this.digest = hashPayload ? newDigest() : null;
+    }
+
+    // Called for every body chunk, the chunk itself is only read through read-only views
+    public void append(DataBuffer dataBuffer) {
+        if (sealed) {
+            return; // the body was already seen once, e.g. a retried request
+        }
+        try (DataBuffer.ByteBufferIterator iterator = dataBuffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                ByteBuffer byteBuffer = iterator.next();
+                totalBytes += byteBuffer.remaining();
+                copyPrefix(byteBuffer.duplicate());
+                if (digest != null) {
+                    digest.update(byteBuffer);
+                }
+            }
+        }
+    }
+
+    public void seal() {
+        sealed = true;
+    }
+
+    // The value stored in ApiMetric.requestPayload
+    public String toPayload() {
+        if (digest != null) {
+            return "sha256:" + HexFormat.of().formatHex(digest.digest()) + " (" + totalBytes + " bytes)";
+        }
+        if (captured == null) {
+            return "";
+        }
+        String payload = captured.toString(StandardCharsets.UTF_8);
+        return totalBytes > captured.readableBytes() ? payload + "... (" + totalBytes + " bytes)" : payload;
+    }
+
+    public void release() {
+        if (captured != null) {
+            captured.release();
+            captured = null;
+        }
+    }
+
+    private void copyPrefix(ByteBuffer byteBuffer) {
+        if (digest != null || maxBytes <= 0) {
+            return;
+        }
+        if (captured == null) {
+            captured = PooledByteBufAllocator.DEFAULT.buffer(Math.min(maxBytes, 256), maxBytes);
+        }
+        int length = Math.min(captured.maxWritableBytes(), byteBuffer.remaining());
+        if (length > 0) {
+            byteBuffer.limit(byteBuffer.position() + length);
+            captured.writeBytes(byteBuffer);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.lite.gateway.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.model.PayloadCaptureRecord;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.lang.NonNull;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Tees the request body into a bounded PayloadCapture while it is forwarded, so the metrics filter can store
+ * the first bytes (or a hash) of the payload without buffering the whole body.
+ */
+@Slf4j
+public class PayloadCaptureFilter implements GatewayFilter, Ordered {
+
+    public static final String PAYLOAD_CAPTURE_ATTR = PayloadCaptureFilter.class.getName() + ".payloadCapture";
+
+    private final PayloadCaptureRecord payloadCaptureRecord;
+
+    public PayloadCaptureFilter(PayloadCaptureRecord payloadCaptureRecord) {
+        this.payloadCaptureRecord = payloadCaptureRecord;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        PayloadCapture payloadCapture = new PayloadCapture(payloadCaptureRecord.maxBytes(), payloadCaptureRecord.hashPayload());
+        exchange.getAttributes().put(PAYLOAD_CAPTURE_ATTR, payloadCapture);
+
+        ServerHttpRequestDecorator requestDecorator = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public @NonNull Flux<DataBuffer> getBody() {
+                return super.getBody()
+                        .doOnNext(payloadCapture::append)
+                        .doOnComplete(payloadCapture::seal);
+            }
+        };
+
+        // The metrics filter runs inside this chain, so the capture can be released once the chain is done
+        return chain.filter(exchange.mutate().request(requestDecorator).build())
+                .doFinally(signal -> {
+                    exchange.getAttributes().remove(PAYLOAD_CAPTURE_ATTR);
+                    payloadCapture.release();
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
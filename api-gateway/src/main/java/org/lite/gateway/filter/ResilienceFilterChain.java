@@ -0,0 +1,65 @@
+package org.lite.gateway.filter;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable, precompiled filters (RateLimiter, TimeLimiter, CircuitBreaker, Retry, PayloadCapture) of a single route.
+ * The list is built once when the routes are loaded or refreshed, so the request path only walks the prebuilt filters.
+ */
+public class ResilienceFilterChain implements GatewayFilter, Ordered {
+
+    private final String routeId;
+    private final List<GatewayFilter> filters;
+
+    public ResilienceFilterChain(String routeId, List<GatewayFilter> filters) {
+        this.routeId = routeId;
+        List<GatewayFilter> sorted = new ArrayList<>(filters);
+        AnnotationAwareOrderComparator.sort(sorted);
+        this.filters = List.copyOf(sorted);
+    }
+
+    public String getRouteId() {
+        return routeId;
+    }
+
+    public List<GatewayFilter> getFilters() {
+        return filters;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String pathEndpoint = exchange.getRequest().getURI().getPath();
+
+        // Skip resilience filters for health check endpoints
+        if (filters.isEmpty() || pathEndpoint.endsWith("/health") || pathEndpoint.endsWith("/health/")) {
+            return chain.filter(exchange);
+        }
+        return new ResilienceGatewayFilterChain(filters, 0, chain).filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    // Walks the prebuilt filters and then hands over to the rest of the route chain
+    private record ResilienceGatewayFilterChain(List<GatewayFilter> filters, int index, GatewayFilterChain next) implements GatewayFilterChain {
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            return Mono.defer(() -> {
+                if (index < filters.size()) {
+                    return filters.get(index).filter(exchange, new ResilienceGatewayFilterChain(filters, index + 1, next));
+                }
+                return next.filter(exchange);
+            });
+        }
+    }
+}
@@ -6,12 +6,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.model.RetryRecord;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.cloud.gateway.support.NotFoundException;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
@@ -20,6 +23,8 @@ import reactor.util.retry.RetryBackoffSpec;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 @Slf4j
@@ -27,58 +32,81 @@ import java.util.concurrent.TimeoutException;
 public class RetryFilter implements GatewayFilter, Ordered {
 
     RetryRecord retryRecord;
+    private final RetryConfig retryConfig;
+    private final RetryBackoffSpec retryBackoffSpec;
+    private final List<Class<?>> retryExceptionClasses;
 
     public RetryFilter(RetryRecord retryRecord) {
         this.retryRecord = retryRecord;
+        this.retryExceptionClasses = parseRetryExceptions(retryRecord.retryExceptions());
+        this.retryConfig = RetryConfig.custom()
+                .maxAttempts(retryRecord.maxAttempts())
+                .waitDuration(retryRecord.waitDuration())
+                .retryOnException(this::shouldRetryOnException)
+                .ignoreExceptions(TimeoutException.class, NotFoundException.class, WebClientResponseException.TooManyRequests.class) // Do not retry on TimeoutException or NotFoundException
+                .build();
+        this.retryBackoffSpec = buildRetryBackoffSpec(retryRecord.maxAttempts(), retryRecord.waitDuration(), retryConfig);
     }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long replayableBodySize = getReplayableBodySize(exchange.getRequest());
+        if (replayableBodySize < 0) {
+            // The body is too large (or of unknown size) to be replayed, send it once without retries
+            log.debug("Request body is not replayable for route: {}, skipping retry", retryRecord.routeId());
+            return chain.filter(exchange);
+        }
+        if (replayableBodySize == 0) {
+            return filterWithRetry(exchange, chain);
+        }
+
+        // Read the body once into pooled buffers, every attempt replays the same memory
+        return DataBufferUtils.join(exchange.getRequest().getBody(), retryRecord.maxReplayableBodySize())
+                // only allocated when the body turned out to be empty, and released with the cached request
+                .switchIfEmpty(Mono.fromSupplier(() -> exchange.getResponse().bufferFactory().allocateBuffer(0)))
+                .flatMap(body -> {
+                    CachedBodyRequest cachedBodyRequest = new CachedBodyRequest(exchange.getRequest(), body);
+                    return filterWithRetry(exchange.mutate().request(cachedBodyRequest).build(), chain)
+                            .doFinally(signal -> cachedBodyRequest.release());
+                });
+    }
+
+    private Mono<Void> filterWithRetry(ServerWebExchange exchange, GatewayFilterChain chain) {
+        // We wrap the entire downstream call (chain.filter) inside the retry logic
+        // Use Mono.defer to ensure fresh invocation on every retry
+        return Mono.defer(() -> chain.filter(exchange) // Send the request to the downstream service
+                        .onErrorResume(throwable -> {
+                            // Handle upstream (gateway-level) errors
+                            log.error("Error occurred: {}", throwable.getMessage());
+
+                            if (isUpstreamError(throwable)) {
+                                // Directly handle upstream errors and bypass downstream retry
+                                return handleErrorFallback(exchange, throwable);
+                            }
+
+                            // If not upstream, rethrow to allow retry
+                            return Mono.error(throwable);
+                        })
+                        .then(Mono.defer(() -> handleResponse(exchange)))) // Handle response after downstream call
+                .retryWhen(retryBackoffSpec.doBeforeRetry(retrySignal -> {
+                    log.info("Retrying attempt {} for route {} at time {}", retrySignal.totalRetries() + 1, retryRecord.routeId(), Instant.now());
+                    // Let the routing filter send the request again on the next attempt
+                    ServerWebExchangeUtils.reset(exchange);
+                })) // Retry on errors from the downstream call
+                .onErrorResume(throwable -> handleErrorFallback(exchange, throwable));
+    }
 
-        try {
-            String routeId = retryRecord.routeId();
-            int maxAttempts = retryRecord.maxAttempts();
-            Duration waitDuration = retryRecord.waitDuration();
-            String retryExceptions = retryRecord.retryExceptions();
-            //log.info("Applying Retry for route: {}", routeId);
-
-            RetryConfig retryConfig = RetryConfig.custom()
-                    .maxAttempts(maxAttempts)
-                    .waitDuration(waitDuration)
-                    .retryOnException(throwable -> shouldRetryOnException(throwable, retryExceptions))
-                    .ignoreExceptions(TimeoutException.class, NotFoundException.class, WebClientResponseException.TooManyRequests.class) // Do not retry on TimeoutException or NotFoundException
-                    .build();
-            RetryBackoffSpec retryBackoffSpec = buildRetryBackoffSpec(maxAttempts, waitDuration, retryConfig);
-            BodyCaptureRequest requestDecorator = new BodyCaptureRequest(exchange.getRequest());
-            BodyCaptureResponse responseDecorator = new BodyCaptureResponse(exchange.getResponse());
-
-            // We wrap the entire downstream call (chain.filter) inside the retry logic
-            // We use Mono.defer to make sure that each retry triggers a fresh request to the downstream service
-            // Use Mono.defer to ensure fresh invocation on every retry
-            return
-                    Mono.defer(() -> {
-                        //log.info("Sending request to downstream service...");
-                        return chain.filter(exchange) // Send the request to the downstream service
-                                .onErrorResume(throwable -> {
-                                    // Handle upstream (gateway-level) errors
-                                    log.error("Error occurred: {}", throwable.getMessage());
-
-                                    if (isUpstreamError(throwable)) {
-                                        //log.info("Detected an upstream error, skipping retry.");
-                                        // Directly handle upstream errors and bypass downstream retry
-                                        return handleErrorFallback(exchange, throwable);
-                                    }
-
-                                    // If not upstream, rethrow to allow retry
-                                    return Mono.error(throwable);
-                                })
-                                .then(Mono.defer(() -> handleResponse(responseDecorator, exchange))); // Handle response after downstream call
-                    })
-                    .retryWhen(retryBackoffSpec) // Retry on errors from the downstream call
-                    .onErrorResume(throwable -> handleErrorFallback(exchange, throwable));
-        } catch (Throwable e) {
-            throw new RuntimeException(e);
+    // -1 if the body cannot be replayed, 0 if there is no body, the content length otherwise
+    private long getReplayableBodySize(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        long contentLength = headers.getContentLength();
+        if (contentLength > 0) {
+            return contentLength <= retryRecord.maxReplayableBodySize() ? contentLength : -1;
         }
+        if (contentLength == 0 || !headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+            return 0;
+        }
+        return -1; // chunked body of unknown size
     }
 
     private boolean isUpstreamError(Throwable throwable) {
@@ -86,28 +114,23 @@ public class RetryFilter implements GatewayFilter, Ordered {
         return throwable instanceof org.springframework.cloud.gateway.support.NotFoundException;
     }
 
-    // Ensure the response is captured only after retry completion
-    private Mono<Void> handleResponse(BodyCaptureResponse responseDecorator, ServerWebExchange exchange) {
-        return responseDecorator.getBody()
-                .then(Mono.defer(()->{
-                    HttpStatusCode statusCode = responseDecorator.getStatusCode();
-                    //log.info("Downstream response status: {}", statusCode);
-                    String fullBody = responseDecorator.getFullBody();
-
-                    // Check for 5xx server errors to trigger retry
-                    if (statusCode != null && (statusCode.is5xxServerError())) {
-                        fullBody += " (5xx error)";//IMPORTANT!!! Keep this here because we are checking this inside the CircuitBreakerFilter
-                        log.error("Downstream 5xx error, retrying Body: {}", fullBody);
-                        return Mono.error(new RuntimeException(fullBody)); // Trigger retry
-                    }
+    // Only the status line is looked at, the response body is never decoded
+    private Mono<Void> handleResponse(ServerWebExchange exchange) {
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
 
-                    // If the response is successful, pass it through without modification
-                    if (statusCode != null && statusCode.is2xxSuccessful()) {
-                        return exchange.getResponse().setComplete();
-                    }
+        // Check for 5xx server errors to trigger retry
+        if (statusCode != null && (statusCode.is5xxServerError())) {
+            String message = "Downstream responded " + statusCode.value() + " (5xx error)";//IMPORTANT!!! Keep the "5xx" here because we are checking this inside the CircuitBreakerFilter
+            log.error("Downstream 5xx error, retrying: {}", message);
+            return Mono.error(new RuntimeException(message)); // Trigger retry
+        }
 
-                    return Mono.error(new RuntimeException("Non-retrievable response status: " + statusCode));
-                }));
+        // If the response is successful, pass it through without modification
+        if (statusCode != null && statusCode.is2xxSuccessful()) {
+            return exchange.getResponse().setComplete();
+        }
+
+        return Mono.error(new RuntimeException("Non-retrievable response status: " + statusCode));
     }
 
     public Mono<Void> handleErrorFallback(ServerWebExchange exchange, Throwable throwable) {
@@ -170,13 +193,24 @@ public class RetryFilter implements GatewayFilter, Ordered {
                         log.info("Skipping retry for exception: {} on route: {} seconds: {}", throwable.getClass().getName(), retryRecord.routeId(), waitDuration.getSeconds());
                     }
                     return shouldRetry;
-                })
-                .doBeforeRetry(retrySignal -> {
-                    log.info("Retrying attempt {} for route {} at time {}", retrySignal.totalRetries() + 1, retryRecord.routeId(), Instant.now());
                 });
     }
 
-    private boolean shouldRetryOnException(Throwable throwable, String retryExceptions) {
+    private static List<Class<?>> parseRetryExceptions(String retryExceptions) {
+        List<Class<?>> classes = new ArrayList<>();
+        if (retryExceptions != null && !retryExceptions.isEmpty()) {
+            for (String exceptionClassName : retryExceptions.split(",")) {
+                try {
+                    classes.add(Class.forName(exceptionClassName.trim()));
+                } catch (ClassNotFoundException e) {
+                    log.warn("Invalid exception class: {}", exceptionClassName);
+                }
+            }
+        }
+        return List.copyOf(classes);
+    }
+
+    private boolean shouldRetryOnException(Throwable throwable) {
         if (throwable == null) {
             log.warn("Throwable is null in shouldRetryOnException");
             return false;
@@ -212,17 +246,11 @@ public class RetryFilter implements GatewayFilter, Ordered {
             return false;
         }
 
-        if (retryExceptions != null && !retryExceptions.isEmpty()) {
-            for (String exceptionClassName : retryExceptions.split(",")) {
-                try {
-                    Class<?> clazz = Class.forName(exceptionClassName.trim());
-                    if (clazz.isInstance(throwable)) {
-                        log.info("Will retry for exception: {}", throwable.getClass().getName());
-                        return true;
-                    }
-                } catch (ClassNotFoundException e) {
-                    log.warn("Invalid exception class: {}", exceptionClassName);
-                }
+        // The configured exception classes are resolved once in the constructor
+        for (Class<?> clazz : retryExceptionClasses) {
+            if (clazz.isInstance(throwable)) {
+                log.info("Will retry for exception: {}", throwable.getClass().getName());
+                return true;
             }
         }
         log.info("No retry configured for exception: {}", throwable.getClass().getName());
@@ -1,7 +1,5 @@
 package org.lite.gateway.filter;
 
-import io.github.resilience4j.timelimiter.TimeLimiter;
-import io.github.resilience4j.timelimiter.TimeLimiterConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.model.TimeLimiterRecord;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
@@ -13,55 +11,37 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
 @Slf4j
 public class TimeLimiterFilter implements GatewayFilter, Ordered {
 
     private final TimeLimiterRecord timeLimiterRecord;
+    private final Duration timeoutDuration;
 
     public TimeLimiterFilter(TimeLimiterRecord timeLimiterRecord) {
         this.timeLimiterRecord = timeLimiterRecord;
+        this.timeoutDuration = Duration.ofSeconds(timeLimiterRecord.timeoutDuration());
+        log.info("Configuring TimeLimiter for route: {}, timeoutDuration: {}, cancelRunningFuture: {}",
+                timeLimiterRecord.routeId(), timeLimiterRecord.timeoutDuration(), timeLimiterRecord.cancelRunningFuture());
     }
 
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-
-        // Create the TimeLimiterConfig
-        TimeLimiterConfig timeLimiterConfig = TimeLimiterConfig.custom()
-                .timeoutDuration(Duration.ofSeconds(timeLimiterRecord.timeoutDuration())) // Set the timeout duration
-                .cancelRunningFuture(timeLimiterRecord.cancelRunningFuture()) // Whether to cancel running future on timeout
-                .build();
-
-        log.info("Configuring TimeLimiter for route: {}, timeoutDuration: {}, cancelRunningFuture: {}",
-                timeLimiterRecord.routeId(), timeLimiterRecord.timeoutDuration(), timeLimiterRecord.cancelRunningFuture());
-        // Create the TimeLimiter using the Resilience4J factory
-        TimeLimiter timeLimiter = TimeLimiter.of("timeLimiter-" + timeLimiterRecord.routeId(), timeLimiterConfig);
-
-        // Apply the TimeLimiter to the route
-        log.info("Applying TimeLimiter for route: {}", timeLimiterRecord.routeId());
-
-        // Convert Mono to CompletableFuture and apply the TimeLimiter
-        CompletableFuture<Void> future = Mono.from(chain.filter(exchange))
-                .toFuture();
-
-        // Apply the TimeLimiter logic
-        return Mono.fromSupplier(() -> {
-                    try {
-                        return timeLimiter.executeFutureSupplier(() -> future);
-                    } catch (Exception e) {
-                        log.error("Exception occurred in TimeLimiter: {}", e.getMessage());
-                        throw new RuntimeException(e); //throw the actual error that occurred, not TimeoutException (this will jump to onErrorResume)
-                    }
-                })
-                .flatMap(ignored -> Mono.empty()) // As we are dealing with `Void`, we just return an empty Mono on success
-                .onErrorResume(throwable -> handleException(exchange, throwable))// Handle errors
-                .then();
+        // Time out the downstream call inside this filter's own subscription, the timer runs on the shared hashed wheel.
+        // On expiry Mono.timeout cancels the upstream subscription, which also cancels the downstream Netty exchange.
+        // The wheel only signals the timeout, the error response is written from a parallel worker so a slow write
+        // never holds up the single timer thread.
+        return chain.filter(exchange)
+                .timeout(timeoutDuration, HashedWheelTimerScheduler.shared())
+                .onErrorResume(throwable -> throwable instanceof TimeoutException
+                        ? Mono.defer(() -> handleException(exchange, throwable)).subscribeOn(Schedulers.parallel())
+                        : handleException(exchange, throwable));// Handle errors
     }
 
     private Mono<Void> handleException(ServerWebExchange exchange, Throwable throwable) {
@@ -74,13 +54,16 @@ public class TimeLimiterFilter implements GatewayFilter, Ordered {
 
         String errorMessage = "Unknown error occurred";
 
-        if(throwable instanceof RuntimeException){
+        // Errors now arrive unwrapped, only unwrap the generic RuntimeException wrappers
+        if (throwable.getClass() == RuntimeException.class && throwable.getCause() != null) {
             throwable = throwable.getCause();
         }
 
         HttpStatus status = HttpStatus.INTERNAL_SERVER_ERROR; // Default to 500 Internal Server Error
         errorMessage = throwable.getMessage() != null ? throwable.getMessage() : errorMessage;
         if (throwable instanceof TimeoutException) {
+            // Keep the message clients saw with the Resilience4j TimeLimiter
+            errorMessage = "TimeLimiter 'timeLimiter-" + timeLimiterRecord.routeId() + "' recorded a timeout exception.";
             status = HttpStatus.GATEWAY_TIMEOUT; // 504 Gateway Timeout
         } else if (throwable instanceof IllegalArgumentException) {
             status = HttpStatus.BAD_REQUEST; // 400 Bad Request
@@ -1,22 +1,39 @@
 package org.lite.gateway.listener;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.service.DynamicRouteService;
 import org.springframework.stereotype.Component;
 
-import java.util.Set;
-
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class CustomMessageListener {
 
-    private final Set<String> whitelistedPaths;
+    private static final String ADD_PATH = "ADD PATH:";
+    private static final String REMOVE_PATH = "REMOVE PATH:";
+    private static final String ADD_SCOPE = "ADD SCOPE:";
+    private static final String REMOVE_SCOPE = "REMOVE SCOPE:";
+
+    private final DynamicRouteService dynamicRouteService;
 
-    // Method to handle incoming messages and update whitelisted paths
+    // Method to handle incoming messages and update whitelisted paths and client scopes
     public void handleMessage(String pathMessage) {
-        if (pathMessage.startsWith("ADD:")) {
-            whitelistedPaths.add(pathMessage.substring(4));
-        } else if (pathMessage.startsWith("REMOVE:")) {
-            whitelistedPaths.remove(pathMessage.substring(7));
+        if (pathMessage.startsWith(ADD_PATH)) {
+            dynamicRouteService.addWhitelistedPath(pathMessage.substring(ADD_PATH.length()));
+        } else if (pathMessage.startsWith(REMOVE_PATH)) {
+            dynamicRouteService.removeWhitelistedPath(pathMessage.substring(REMOVE_PATH.length()));
+        } else if (pathMessage.startsWith(ADD_SCOPE)) {
+            // ADD SCOPE:/inventory/**=inventory-service.read
+            int separator = pathMessage.lastIndexOf('=');
+            if (separator > ADD_SCOPE.length()) {
+                dynamicRouteService.putClientScope(pathMessage.substring(ADD_SCOPE.length(), separator),
+                        pathMessage.substring(separator + 1));
+            }
+        } else if (pathMessage.startsWith(REMOVE_SCOPE)) {
+            dynamicRouteService.removeClientScope(pathMessage.substring(REMOVE_SCOPE.length()));
+        } else {
+            log.debug("Ignoring message on routes topic: {}", pathMessage);
         }
     }
 }
@@ -0,0 +1,4 @@
+package org.lite.gateway.model;
+
+// Daily call quotas of a route, a null limit means the quota is not enforced for that scope
+public record DailyQuotaRecord(String routeId, Integer maxCallsPerDay, Integer maxCallsPerDayPerTeam, Integer maxCallsPerDayPerApiKey) { }
@@ -0,0 +1,4 @@
+package org.lite.gateway.model;
+
+// Outcome of a daily quota check, limit/remaining are those of the most restrictive scope
+public record DailyQuotaResult(boolean allowed, long limit, long remaining, long resetEpochSecond) { }
@@ -0,0 +1,14 @@
+package org.lite.gateway.model;
+
+import org.lite.gateway.dto.ServiceDTO;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Immutable view of every route's health, a new instance with a higher version replaces it whenever something changes
+public record HealthSnapshot(long version, String etag, Map<String, ServiceDTO> services) {
+
+    public Collection<ServiceDTO> serviceList() {
+        return services.values();
+    }
+}
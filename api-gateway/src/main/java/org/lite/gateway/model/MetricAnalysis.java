@@ -13,6 +13,8 @@ import java.time.Instant;
 public class MetricAnalysis {
     private double mean;
     private double median;
+    private double p95;
+    private double p99;
     private double stdDev;
     private TrendAnalysis trend;
     private List<Double> outliers = new ArrayList<>();
@@ -28,6 +30,8 @@ public class MetricAnalysis {
         return new MetricAnalysis()
             .setMean(0.0)
             .setMedian(0.0)
+            .setP95(0.0)
+            .setP99(0.0)
             .setStdDev(0.0)
             .setTrend(new TrendAnalysis(0.0, TrendDirection.STABLE))
             .setForecast(0.0);
@@ -0,0 +1,30 @@
+package org.lite.gateway.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+// Position after the last metric of a page, metrics are ordered by timestamp and then id, both descending
+public record MetricsCursor(Instant timestamp, String id) {
+
+    // Opaque to clients, url safe base64 of "<epoch millis>:<id>"
+    public String encode() {
+        String raw = timestamp.toEpochMilli() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MetricsCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            String id = raw.substring(separator + 1);
+            if (separator <= 0 || id.isEmpty()) {
+                throw new IllegalArgumentException();
+            }
+            return new MetricsCursor(Instant.ofEpochMilli(Long.parseLong(raw.substring(0, separator))), id);
+        } catch (IllegalArgumentException e) {
+            // bad base64 and bad numbers alike
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
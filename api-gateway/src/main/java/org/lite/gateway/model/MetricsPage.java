@@ -0,0 +1,9 @@
+package org.lite.gateway.model;
+
+import org.lite.gateway.entity.ApiMetric;
+
+import java.util.List;
+
+// One page of raw metrics, nextCursor is null on the last page
+public record MetricsPage(List<ApiMetric> items, MetricsCursor nextCursor) {
+}
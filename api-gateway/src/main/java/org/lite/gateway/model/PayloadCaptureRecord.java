@@ -0,0 +1,3 @@
+package org.lite.gateway.model;
+
+public record PayloadCaptureRecord(String routeId, int maxBytes, boolean hashPayload) { }
@@ -0,0 +1,15 @@
+package org.lite.gateway.model;
+
+// Sums of a set of ApiMetricRollup documents
+public record RollupTotals(long count, long successCount, long durationSum, long durationMin, long durationMax) {
+
+    public static final RollupTotals EMPTY = new RollupTotals(0, 0, 0, 0, 0);
+
+    public double averageDuration() {
+        return count == 0 ? 0.0 : (double) durationSum / count;
+    }
+
+    public double successRate() {
+        return count == 0 ? 1.0 : (double) successCount / count;
+    }
+}
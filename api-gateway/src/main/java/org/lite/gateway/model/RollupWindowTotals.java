@@ -0,0 +1,5 @@
+package org.lite.gateway.model;
+
+// Rollup totals of a time window and of the window of the same length right before it
+public record RollupWindowTotals(RollupTotals current, RollupTotals previous) {
+}
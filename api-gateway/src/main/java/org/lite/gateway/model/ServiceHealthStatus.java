@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import java.util.*;
 import java.time.Instant;
 import java.time.Duration;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Data
@@ -26,6 +27,9 @@ public class ServiceHealthStatus {
     private int consecutiveFailures = 0;
     private Duration uptime;
     private String serviceId;
+    // Trends computed with this probe, the dashboard push sends them separately
+    @JsonIgnore
+    private Map<String, TrendAnalysis> trends;
 
     public void updateLastChecked() {
         this.lastChecked = Instant.now().toEpochMilli();
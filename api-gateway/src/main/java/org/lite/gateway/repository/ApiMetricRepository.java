@@ -10,7 +10,6 @@ import org.lite.gateway.dto.ServiceUsageAggregation;
 import org.lite.gateway.dto.TimeSeriesStats;
 import org.lite.gateway.dto.EndpointStats;
 import org.lite.gateway.dto.EndpointTimeSeriesStats;
-import org.lite.gateway.dto.EndpointLatencyStats;
 import org.lite.gateway.entity.ApiMetric;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
@@ -222,42 +221,6 @@ public interface ApiMetricRepository extends ReactiveMongoRepository<ApiMetric,
     })
     Flux<EndpointTimeSeriesStats> getEndpointTimeSeriesStats(Instant cutoff);
 
-    @Aggregation(pipeline = {
-        "{ $match: { " +
-        "    routeIdentifier: { $in: ?0 }, " +
-        "    timestamp: { $gte: ?1 }, " +
-        "    duration: { $exists: true, $ne: null }" +
-        "} }",
-        "{ $group: { " +
-        "    _id: { " +
-        "      service: { $ifNull: ['$toService', 'unknown'] }," +
-        "      path: { $ifNull: ['$pathEndPoint', '/'] }," +
-        "      method: { $ifNull: ['$interactionType', 'APP_TO_APP'] }" +
-        "    }," +
-        "    responseTimes: { $push: { $ifNull: ['$duration', 0] } }," +
-        "    min: { $min: { $ifNull: ['$duration', 0] } }," +
-        "    max: { $max: { $ifNull: ['$duration', 0] } }," +
-        "    count: { $sum: 1 }" +
-        "} }",
-        "{ $match: { count: { $gte: 1 } } }",
-        "{ $addFields: { " +
-        "    sortedTimes: { $sortArray: { input: '$responseTimes', sortBy: 1 } }" +
-        "} }",
-        "{ $project: { " +
-        "    _id: 1," +
-        "    min: 1," +
-        "    max: 1," +
-        "    count: 1," +
-        "    p50: { $arrayElemAt: ['$sortedTimes', { $floor: { $multiply: [ 0.50, { $subtract: ['$count', 1] } ] } } ] }," +
-        "    p75: { $arrayElemAt: ['$sortedTimes', { $floor: { $multiply: [ 0.75, { $subtract: ['$count', 1] } ] } } ] }," +
-        "    p90: { $arrayElemAt: ['$sortedTimes', { $floor: { $multiply: [ 0.90, { $subtract: ['$count', 1] } ] } } ] }," +
-        "    p95: { $arrayElemAt: ['$sortedTimes', { $floor: { $multiply: [ 0.95, { $subtract: ['$count', 1] } ] } } ] }," +
-        "    p99: { $arrayElemAt: ['$sortedTimes', { $floor: { $multiply: [ 0.99, { $subtract: ['$count', 1] } ] } } ] }" +
-        "} }",
-        "{ $sort: { 'p95': -1 } }"
-    })
-    Flux<EndpointLatencyStats> getEndpointLatencyStats(List<String> routeIds, Instant cutoff);
-
     @Aggregation(pipeline = {
         "{ $match: { timestamp: { $gte: ?0 } } }",
         "{ $group: { " +
@@ -7,4 +7,5 @@ public interface ApiKeyService {
     Mono<ApiKey> validateApiKey(String apiKey);
     Mono<ApiKey> createApiKey(String name, String teamId, String createdBy, Long expiresInDays);
     Mono<Void> revokeApiKey(String apiKeyId);
+    Mono<Void> deleteApiKey(String apiKeyId);
 } 
\ No newline at end of file
@@ -3,7 +3,10 @@ package org.lite.gateway.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.entity.ApiMetric;
-import org.lite.gateway.repository.ApiMetricRepository;
+import org.lite.gateway.entity.ApiMetricRollup;
+import org.lite.gateway.model.MetricsCursor;
+import org.lite.gateway.model.MetricsPage;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.*;
@@ -14,7 +17,10 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 
 @Service
@@ -26,91 +32,101 @@ public class ApiMetricsService {
     @SuppressWarnings("unchecked")
     private static final Class<Map<String, Object>> OUTPUT_TYPE = (Class<Map<String, Object>>) (Class<?>) Map.class;
 
-    private final ApiMetricRepository apiMetricRepository;
+    private final MetricsStorageService metricsStorageService;
     private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final MetricsRollupService metricsRollupService;
+
+    @Value("${metrics.query.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${metrics.query.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${metrics.query.export-page-size:500}")
+    private int exportPageSize;
+
+    /**
+     * One page of raw metrics, newest first. Without dates the last month is returned,
+     * unless a service filter is given, then the whole retained history is paged through.
+     */
+    public Mono<MetricsPage> getMetricsPage(LocalDateTime startDate, LocalDateTime endDate,
+                                            String fromService, String toService,
+                                            String cursor, Integer limit, List<String> fields) {
+        return metricsStorageService.findPage(
+                rangeCriteria(startDate, endDate, fromService, toService),
+                cursor != null ? MetricsCursor.decode(cursor) : null,
+                pageSize(limit),
+                fields);
+    }
 
-    public Flux<ApiMetric> getMetrics(LocalDateTime startDate, LocalDateTime endDate, 
-                                    String fromService, String toService) {
-        return apiMetricRepository.findByTimestampBetweenAndServices(
-            startDate != null ? startDate : LocalDateTime.MIN,
-            endDate != null ? endDate : LocalDateTime.now(),
-            fromService,
-            toService
-        );
+    // Everything in the range for bulk export, streamed page by page as the client reads it
+    public Flux<ApiMetric> exportMetrics(LocalDateTime startDate, LocalDateTime endDate,
+                                         String fromService, String toService, List<String> fields) {
+        return metricsStorageService.stream(
+                rangeCriteria(startDate, endDate, fromService, toService), exportPageSize, fields);
     }
 
+    // Read from the rollups, so the cost depends on the number of endpoints and buckets rather than requests
     public Mono<Map<String, Object>> getMetricsSummary(LocalDateTime startDate, LocalDateTime endDate) {
-        Criteria timeCriteria = new Criteria();
-        if (startDate != null && endDate != null) {
-            timeCriteria = Criteria.where("timestamp").gte(startDate).lte(endDate);
-        }
-
-        AggregationOperation match = Aggregation.match(timeCriteria);
-        AggregationOperation group = Aggregation.group()
-                .count().as("totalRequests")
-                .sum("duration").as("totalDuration")
-                .avg("duration").as("avgDuration")
-                .max("duration").as("maxDuration")
-                .min("duration").as("minDuration")
-                .sum(ConditionalOperators.when(Criteria.where("success").is(true))
-                    .then(1)
-                    .otherwise(0)).as("successfulRequests")
-                .sum(ConditionalOperators.when(Criteria.where("success").is(false))
-                    .then(1)
-                    .otherwise(0)).as("failedRequests");
-
-        TypedAggregation<ApiMetric> aggregation = Aggregation.newAggregation(ApiMetric.class, match, group);
-        return reactiveMongoTemplate.aggregate(aggregation, OUTPUT_TYPE)
-                .next()
-                .defaultIfEmpty(new HashMap<>());
+        return metricsRollupService.getTotals(null, toInstant(startDate, endDate), toInstant(endDate, startDate))
+                .map(totals -> {
+                    Map<String, Object> summary = new LinkedHashMap<>();
+                    if (totals.count() == 0) {
+                        return summary;
+                    }
+                    summary.put("totalRequests", totals.count());
+                    summary.put("totalDuration", totals.durationSum());
+                    summary.put("avgDuration", totals.averageDuration());
+                    summary.put("maxDuration", totals.durationMax());
+                    summary.put("minDuration", totals.durationMin());
+                    summary.put("successfulRequests", totals.successCount());
+                    summary.put("failedRequests", totals.count() - totals.successCount());
+                    return summary;
+                });
     }
 
 
     public Flux<Map<String, Object>> getServiceInteractions(LocalDateTime startDate, LocalDateTime endDate) {
-        Criteria timeCriteria = new Criteria();
-        if (startDate != null && endDate != null) {
-            timeCriteria = Criteria.where("timestamp").gte(startDate).lte(endDate);
-        }
-
-        AggregationOperation match = Aggregation.match(timeCriteria);
+        AggregationOperation match = Aggregation.match(
+                metricsRollupService.rollupCriteria(null, toInstant(startDate, endDate), toInstant(endDate, startDate)));
         AggregationOperation group = Aggregation.group("fromService", "toService")
-                .count().as("count")
-                .avg("duration").as("avgDuration")
-                .sum("duration").as("totalDuration")
-                .sum(ConditionalOperators.when(Criteria.where("success").is(true))
-                    .then(1)
-                    .otherwise(0)).as("successCount")
-                .sum(ConditionalOperators.when(Criteria.where("success").is(false))
-                    .then(1)
-                    .otherwise(0)).as("failureCount");
+                .sum("count").as("count")
+                .sum("durationSum").as("totalDuration")
+                .sum("successCount").as("successCount");
+        AggregationOperation project = Aggregation.project("count", "totalDuration", "successCount")
+                .and(ArithmeticOperators.Divide.valueOf("totalDuration").divideBy("count")).as("avgDuration")
+                .and(ArithmeticOperators.Subtract.valueOf("count").subtract("successCount")).as("failureCount");
 
         AggregationOperation sort = Aggregation.sort(Sort.Direction.DESC, "count");
 
-        TypedAggregation<ApiMetric> aggregation = Aggregation.newAggregation(ApiMetric.class, match, group, sort);
+        TypedAggregation<ApiMetricRollup> aggregation = Aggregation.newAggregation(ApiMetricRollup.class, match, group, project, sort);
         return reactiveMongoTemplate.aggregate(aggregation, OUTPUT_TYPE);
     }
 
     public Flux<Map<String, Object>> getTopEndpoints(LocalDateTime startDate, LocalDateTime endDate, int limit) {
-        Criteria timeCriteria = new Criteria();
-        if (startDate != null && endDate != null) {
-            timeCriteria = Criteria.where("timestamp").gte(startDate).lte(endDate);
-        }
-
-        AggregationOperation match = Aggregation.match(timeCriteria);
+        AggregationOperation match = Aggregation.match(
+                metricsRollupService.rollupCriteria(null, toInstant(startDate, endDate), toInstant(endDate, startDate)));
         AggregationOperation group = Aggregation.group("pathEndPoint")
-                .count().as("count")
-                .avg("duration").as("avgDuration")
+                .sum("count").as("count")
+                .sum("durationSum").as("totalDuration")
                 .addToSet("toService").as("services");
 
         AggregationOperation sort = Aggregation.sort(Sort.Direction.DESC, "count");
         AggregationOperation limitOp = Aggregation.limit(limit);
+        AggregationOperation project = Aggregation.project("count", "services")
+                .and(ArithmeticOperators.Divide.valueOf("totalDuration").divideBy("count")).as("avgDuration");
 
-        TypedAggregation<ApiMetric> aggregation = Aggregation.newAggregation(ApiMetric.class, match, group, sort, limitOp);
+        TypedAggregation<ApiMetricRollup> aggregation = Aggregation.newAggregation(ApiMetricRollup.class, match, group, sort, limitOp, project);
         return reactiveMongoTemplate.aggregate(aggregation, OUTPUT_TYPE);
     }
 
+    // The range only applies when both ends are given, otherwise everything the rollups still hold is counted
+    private static Instant toInstant(LocalDateTime date, LocalDateTime otherEnd) {
+        return date != null && otherEnd != null ? date.atZone(ZoneId.systemDefault()).toInstant() : null;
+    }
+
     public Mono<ApiMetric> getMetricById(String id) {
-        return apiMetricRepository.findById(id);
+        return metricsStorageService.findById(id);
     }
 
     // TODO: Implement secure delete operations
@@ -125,10 +141,40 @@ public class ApiMetricsService {
     */
 
     public Mono<Long> getMetricsCount() {
-        return apiMetricRepository.count();
+        return metricsStorageService.count();
+    }
+
+    public Mono<MetricsPage> getMetricsByService(String serviceName, String cursor, Integer limit, List<String> fields) {
+        return metricsStorageService.findPage(
+                metricsStorageService.serviceCriteria(serviceName),
+                cursor != null ? MetricsCursor.decode(cursor) : null,
+                pageSize(limit),
+                fields);
+    }
+
+    private Criteria rangeCriteria(LocalDateTime startDate, LocalDateTime endDate, String fromService, String toService) {
+        Instant now = Instant.now();
+        Instant from;
+        if (startDate != null) {
+            from = startDate.atZone(ZoneId.systemDefault()).toInstant();
+        } else if (fromService != null || toService != null) {
+            // filtering by service without dates doesn't restrict the date range
+            from = Instant.EPOCH;
+        } else {
+            from = now.minus(Duration.ofDays(30));
+        }
+        Instant to = endDate != null ? endDate.atZone(ZoneId.systemDefault()).toInstant() : now;
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must be before end date");
+        }
+        return metricsStorageService.rangeCriteria(from, to, fromService, toService);
     }
 
-    public Flux<ApiMetric> getMetricsByService(String serviceName) {
-        return apiMetricRepository.findByFromServiceOrToService(serviceName, serviceName);
+    // Missing or non positive limits get the default page size, anything above the cap is capped
+    private int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
     }
 } 
\ No newline at end of file
@@ -5,7 +5,6 @@ import org.lite.gateway.entity.ApiRoute;
 import org.lite.gateway.entity.FilterConfig;
 import org.lite.gateway.filter.CircuitBreakerFilter;
 import org.lite.gateway.model.CircuitBreakerRecord;
-import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
 import org.springframework.cloud.gateway.route.builder.GatewayFilterSpec;
 import java.time.Duration;
 import java.util.Objects;
@@ -13,10 +12,10 @@ import java.util.Objects;
 @Slf4j
 public class CircuitBreakerFilterService implements FilterService{
 
-    private final ReactiveResilience4JCircuitBreakerFactory reactiveResilience4JCircuitBreakerFactory;
+    private final CircuitBreakerRegistryService circuitBreakerRegistryService;
 
-    public CircuitBreakerFilterService(ReactiveResilience4JCircuitBreakerFactory reactiveResilience4JCircuitBreakerFactory) {
-        this.reactiveResilience4JCircuitBreakerFactory = reactiveResilience4JCircuitBreakerFactory;
+    public CircuitBreakerFilterService(CircuitBreakerRegistryService circuitBreakerRegistryService) {
+        this.circuitBreakerRegistryService = circuitBreakerRegistryService;
     }
 
     @Override
@@ -36,7 +35,7 @@ public class CircuitBreakerFilterService implements FilterService{
                     permittedCallsInHalfOpenState, fallbackUri, recordFailurePredicate, automaticTransition
             );
 
-            gatewayFilterSpec.filter(new CircuitBreakerFilter(reactiveResilience4JCircuitBreakerFactory, circuitBreakerRecord));
+            gatewayFilterSpec.filter(new CircuitBreakerFilter(circuitBreakerRegistryService.getCircuitBreaker(circuitBreakerRecord), circuitBreakerRecord));
         } catch (Exception e) {
             log.error("Error applying CircuitBreaker filter for route {}: {}", apiRoute.getRouteIdentifier(), e.getMessage());
         }
@@ -0,0 +1,188 @@
+package org.lite.gateway.service;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.dto.CircuitBreakerStats;
+import org.lite.gateway.model.CircuitBreakerRecord;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreaker;
+import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps one ReactiveCircuitBreaker per route. A breaker is only (re)built when the route's CircuitBreakerRecord changes,
+ * so its state carries across calls and across route refreshes with the same configuration.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CircuitBreakerRegistryService {
+
+    private final ReactiveResilience4JCircuitBreakerFactory reactiveResilience4JCircuitBreakerFactory;
+
+    private final Map<String, RegisteredCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private record RegisteredCircuitBreaker(CircuitBreakerRecord circuitBreakerRecord, ReactiveCircuitBreaker circuitBreaker) {
+        String fingerprint() {
+            return Integer.toHexString(circuitBreakerRecord.hashCode());
+        }
+    }
+
+    public ReactiveCircuitBreaker getCircuitBreaker(CircuitBreakerRecord circuitBreakerRecord) {
+        return circuitBreakers.compute(circuitBreakerRecord.routeId(), (routeId, existing) -> {
+            if (existing != null && existing.circuitBreakerRecord().equals(circuitBreakerRecord)) {
+                return existing;
+            }
+            if (existing != null) {
+                // The configuration changed, drop the old breaker so the new config is not shadowed by the cached one
+                getRegistry().remove(existing.circuitBreakerRecord().cbName());
+            }
+            return new RegisteredCircuitBreaker(circuitBreakerRecord, createCircuitBreaker(circuitBreakerRecord));
+        }).circuitBreaker();
+    }
+
+    // Breaker already registered for the route by its CircuitBreaker filter, null if the route has none
+    public ReactiveCircuitBreaker findCircuitBreaker(String routeId) {
+        RegisteredCircuitBreaker registered = circuitBreakers.get(routeId);
+        return registered != null ? registered.circuitBreaker() : null;
+    }
+
+    // Drop the breakers of routes that no longer exist after a refresh
+    public void retainRoutes(Collection<String> routeIds) {
+        circuitBreakers.entrySet().removeIf(entry -> {
+            if (routeIds.contains(entry.getKey())) {
+                return false;
+            }
+            log.info("Removing CircuitBreaker of deleted route: {}", entry.getKey());
+            getRegistry().remove(entry.getValue().circuitBreakerRecord().cbName());
+            return true;
+        });
+    }
+
+    public List<CircuitBreakerStats> getCircuitBreakerStats() {
+        return circuitBreakers.values().stream()
+                .map(this::toStats)
+                .sorted(Comparator.comparing(CircuitBreakerStats::getRouteId))
+                .toList();
+    }
+
+    private CircuitBreakerStats toStats(RegisteredCircuitBreaker registered) {
+        CircuitBreakerRecord circuitBreakerRecord = registered.circuitBreakerRecord();
+        CircuitBreakerStats.CircuitBreakerStatsBuilder builder = CircuitBreakerStats.builder()
+                .routeId(circuitBreakerRecord.routeId())
+                .name(circuitBreakerRecord.cbName())
+                .fingerprint(registered.fingerprint());
+        getRegistry().find(circuitBreakerRecord.cbName()).ifPresent(circuitBreaker -> {
+            CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+            builder.state(circuitBreaker.getState().name())
+                    .failureRate(metrics.getFailureRate())
+                    .slowCallRate(metrics.getSlowCallRate())
+                    .bufferedCalls(metrics.getNumberOfBufferedCalls())
+                    .failedCalls(metrics.getNumberOfFailedCalls())
+                    .notPermittedCalls(metrics.getNumberOfNotPermittedCalls());
+        });
+        return builder.build();
+    }
+
+    private CircuitBreakerRegistry getRegistry() {
+        return reactiveResilience4JCircuitBreakerFactory.getCircuitBreakerRegistry();
+    }
+
+    private ReactiveCircuitBreaker createCircuitBreaker(CircuitBreakerRecord circuitBreakerRecord) {
+        // Create the CircuitBreaker config based on the data from mongodb
+        CircuitBreakerConfig.Builder cbConfigBuilder = CircuitBreakerConfig.custom()
+                .slidingWindowSize(circuitBreakerRecord.slidingWindowSize())
+                .failureRateThreshold(circuitBreakerRecord.failureRateThreshold())
+                .waitDurationInOpenState(circuitBreakerRecord.waitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(circuitBreakerRecord.permittedCallsInHalfOpenState())
+                .recordExceptions(TimeoutException.class, NotFoundException.class, WebClientResponseException.InternalServerError.class, HttpServerErrorException.InternalServerError.class)
+                .automaticTransitionFromOpenToHalfOpenEnabled(circuitBreakerRecord.automaticTransition());
+
+        // Apply custom failure predicate (e.g., HttpResponsePredicate)
+        //statusCode >= 500
+        if ("HttpResponsePredicate".equals(circuitBreakerRecord.recordFailurePredicate())) {
+            cbConfigBuilder.recordException(this::isRecordedFailure);
+        } else {
+            log.info("No valid recordFailurePredicate provided. Using default failure recording behavior.");
+        }
+        // Build custom CircuitBreakerConfig
+        CircuitBreakerConfig circuitBreakerConfig = cbConfigBuilder.build();
+
+        log.info("Configuring CircuitBreaker for route: {}, slidingWindowSize: {}, failureRateThreshold: {}",
+                circuitBreakerRecord.routeId(), circuitBreakerRecord.slidingWindowSize(), circuitBreakerRecord.failureRateThreshold());
+
+        //Add time limiter by default to the CircuitBreaker but never hit this because we are handling
+        //the TimeLimiter in the TimeLimiterFilter. We've given 100 seconds to prevent the CircuitBreaker and TimeLimiter timeout conflict
+        //The TimeLimiter hits first by this way, otherwise it throws "terminal signal within 1000ms in CircuitBreaker" error by default
+        TimeLimiterConfig timeLimiterConfig = TimeLimiterConfig.custom()
+                .timeoutDuration(Duration.ofSeconds(100000)) // Set a big timeout duration i.e 100 seconds
+                .cancelRunningFuture(true) // Cancel running future on timeout
+                .build();
+
+        // Apply the custom CircuitBreakerConfig to the circuit breaker factory
+        reactiveResilience4JCircuitBreakerFactory.configure(builder ->
+                        builder
+                                .circuitBreakerConfig(circuitBreakerConfig)//Please do not forget that we handle the TimeLimiter later
+                                .timeLimiterConfig(timeLimiterConfig).build(),
+                circuitBreakerRecord.cbName());
+        return reactiveResilience4JCircuitBreakerFactory.create(circuitBreakerRecord.cbName());
+    }
+
+    private boolean isRecordedFailure(Throwable throwable) {
+        if (throwable == null) {
+            log.warn("Throwable is null in recordException");
+            return false;
+        }
+
+        String message = throwable.getMessage();
+        log.debug("inside recordException: {}", message);
+
+        // Treat TimeoutException as a failure
+        if (throwable instanceof TimeoutException) {
+            log.info("Recording TimeoutException in CircuitBreaker as a failure.");
+            return true; // Record the timeout as a failure for CircuitBreaker
+        }
+
+        // Handle 429 TOO_MANY_REQUESTS response
+        if (throwable instanceof WebClientResponseException responseException) {
+            if (responseException.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                log.info("Recording 429 TOO_MANY_REQUESTS in CircuitBreaker.");
+                return true; // Record the 429 status as a failure
+            }
+        }
+
+        if (throwable instanceof RuntimeException runtimeException) {
+            if (message != null && message.contains("429 TOO_MANY_REQUESTS")) {
+                log.info("Recording  429 TOO_MANY_REQUESTS in CircuitBreaker. {}", runtimeException.getMessage());
+                return true;
+            }
+        }
+
+        // Record other exceptions as failures based on conditions
+        if (throwable instanceof Exception) {
+            if (message != null &&
+                    (message.contains("5xx") ||
+                            message.contains("recorded a timeout exception"))) {
+                log.info("Recording 503 Service Unavailable or 504 errors in CircuitBreaker.");
+                return true; // Short-circuit for 503 and 504 errors
+            }
+        }
+
+        return false; // Do not record other exceptions
+    }
+}
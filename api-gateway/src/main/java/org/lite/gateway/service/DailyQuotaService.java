@@ -0,0 +1,116 @@
+package org.lite.gateway.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.entity.ApiKey;
+import org.lite.gateway.model.DailyQuotaRecord;
+import org.lite.gateway.model.DailyQuotaResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calendar-day call quotas per route, per team and per API key, counted in Redis.
+ * All counters of a request are incremented (INCR + EXPIREAT) by one Lua script, so a check is a single
+ * non-blocking round trip no matter how many scopes apply.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DailyQuotaService {
+
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    private static final String DAILY_CALLS_PREFIX = "dailyCalls:";
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE; // yyyyMMdd
+
+    // INCR every key, set its expiry on the first call of the day, return all counts
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RedisScript<List<Long>> INCREMENT_SCRIPT = (RedisScript) RedisScript.of("""
+            local counts = {}
+            for i, key in ipairs(KEYS) do
+                counts[i] = redis.call('INCR', key)
+                if counts[i] == 1 then
+                    redis.call('EXPIREAT', key, ARGV[1])
+                end
+            end
+            return counts
+            """, List.class);
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final ApiKeyService apiKeyService;
+
+    @Value("${quota.daily.zone:UTC}")
+    private ZoneId zoneId;
+
+    public Mono<DailyQuotaResult> checkAndIncrement(DailyQuotaRecord dailyQuotaRecord, ServerWebExchange exchange) {
+        String apiKeyHeader = exchange.getRequest().getHeaders().getFirst(API_KEY_HEADER);
+        boolean needsApiKey = apiKeyHeader != null &&
+                (dailyQuotaRecord.maxCallsPerDayPerTeam() != null || dailyQuotaRecord.maxCallsPerDayPerApiKey() != null);
+
+        // Team and API key quotas only apply to requests carrying a valid API key
+        Mono<ApiKey> apiKey = needsApiKey ? apiKeyService.validateApiKey(apiKeyHeader) : Mono.empty();
+        return apiKey
+                .flatMap(key -> increment(dailyQuotaRecord, key))
+                .switchIfEmpty(Mono.defer(() -> increment(dailyQuotaRecord, null)));
+    }
+
+    private Mono<DailyQuotaResult> increment(DailyQuotaRecord dailyQuotaRecord, ApiKey apiKey) {
+        LocalDate today = LocalDate.now(zoneId);
+        String day = today.format(DAY_FORMAT);
+        long resetEpochSecond = today.plusDays(1).atStartOfDay(zoneId).toEpochSecond();
+
+        List<String> keys = new ArrayList<>(3);
+        List<Integer> limits = new ArrayList<>(3);
+        if (dailyQuotaRecord.maxCallsPerDay() != null) {
+            keys.add(DAILY_CALLS_PREFIX + "route:" + dailyQuotaRecord.routeId() + ":" + day);
+            limits.add(dailyQuotaRecord.maxCallsPerDay());
+        }
+        if (apiKey != null && dailyQuotaRecord.maxCallsPerDayPerTeam() != null) {
+            keys.add(DAILY_CALLS_PREFIX + "team:" + apiKey.getTeamId() + ":" + dailyQuotaRecord.routeId() + ":" + day);
+            limits.add(dailyQuotaRecord.maxCallsPerDayPerTeam());
+        }
+        if (apiKey != null && dailyQuotaRecord.maxCallsPerDayPerApiKey() != null) {
+            keys.add(DAILY_CALLS_PREFIX + "apiKey:" + apiKey.getId() + ":" + dailyQuotaRecord.routeId() + ":" + day);
+            limits.add(dailyQuotaRecord.maxCallsPerDayPerApiKey());
+        }
+        if (keys.isEmpty()) {
+            return Mono.just(new DailyQuotaResult(true, -1, -1, resetEpochSecond));
+        }
+
+        return reactiveStringRedisTemplate.execute(INCREMENT_SCRIPT, keys, List.of(String.valueOf(resetEpochSecond)))
+                .reduce(new ArrayList<Long>(), (counts, partial) -> {
+                    counts.addAll(partial);
+                    return counts;
+                })
+                .map(counts -> {
+                    boolean allowed = true;
+                    long limit = -1;
+                    long remaining = Long.MAX_VALUE;
+                    for (int i = 0; i < counts.size(); i++) {
+                        long scopeRemaining = Math.max(0, limits.get(i) - counts.get(i));
+                        allowed &= counts.get(i) <= limits.get(i);
+                        if (scopeRemaining < remaining) {
+                            remaining = scopeRemaining;
+                            limit = limits.get(i);
+                        }
+                    }
+                    log.debug("API route {} daily quota, counts: {}, limits: {}", dailyQuotaRecord.routeId(), counts, limits);
+                    return new DailyQuotaResult(allowed, limit, remaining, resetEpochSecond);
+                })
+                .onErrorResume(e -> {
+                    // Fail open, a Redis hiccup should not take every route down
+                    log.error("Error checking daily quota for route {}: {}", dailyQuotaRecord.routeId(), e.getMessage());
+                    return Mono.just(new DailyQuotaResult(true, -1, -1, resetEpochSecond));
+                });
+    }
+}
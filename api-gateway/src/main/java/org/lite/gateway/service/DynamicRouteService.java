@@ -3,14 +3,17 @@ package org.lite.gateway.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.entity.ApiRoute;
+import org.lite.gateway.repository.ApiRouteRepository;
+import org.lite.gateway.util.PathWhitelistMatcher;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.PathContainer.PathSegment;
 import org.springframework.stereotype.Service;
-import org.springframework.util.AntPathMatcher;
-import org.springframework.util.PathMatcher;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,12 +38,18 @@ public class DynamicRouteService {
         add("/fallback/**");
         add("/actuator/**");
         add("/linq");
+        add("/linq/batch");
     }};
 
+    // Compiled snapshot of whitelistedPaths, rebuilt and swapped on every change
+    private volatile PathWhitelistMatcher whitelistMatcher = new PathWhitelistMatcher(whitelistedPaths);
+
+    // Near cache of the client scopes keyed by the first path segment, i.e. inventory -> inventory-service.read
     private final Map<String, String> clientScopes = new ConcurrentHashMap<>();
 
     private final RedisTemplate<String, String> redisTemplate;
     private final ChannelTopic routesTopic;
+    private final ApiRouteRepository apiRouteRepository;
 
     @EventListener(ApplicationReadyEvent.class)
     public void initialize() {
@@ -61,15 +70,36 @@ public class DynamicRouteService {
             // Add Redis-loaded paths to in-memory whitelist
             whitelistedPaths.addAll(initialRoutes);
         }
-
-        //initialize the existing client scopes
-        for (Map.Entry<String, String> entry : clientScopes.entrySet()) {
-            redisTemplate.opsForValue().set(entry.getKey(), entry.getValue());
+        rebuildWhitelistMatcher();
+
+        //initialize the existing client scopes, first from redis then from mongodb
+        List<String> scopePaths = List.copyOf(whitelistedPaths);
+        List<String> scopes = redisTemplate.opsForValue().multiGet(scopePaths);
+        if (scopes != null) {
+            for (int i = 0; i < scopePaths.size() && i < scopes.size(); i++) {
+                putClientScope(scopePaths.get(i), scopes.get(i));
+            }
         }
+        apiRouteRepository.findAll()
+                .subscribe(apiRoute -> putClientScope(apiRoute.getPath(), apiRoute.getScope()),
+                        error -> log.error("Failed to load client scopes from mongodb: {}", error.getMessage()),
+                        () -> log.info("Loaded {} client scopes", clientScopes.size()));
     }
 
+    // i.e. /inventory/** -> inventory-service.read, served from the near cache without any network call
     public String getClientScope(String path){
-        return redisTemplate.opsForValue().get(path);
+        String prefix = scopePrefix(path);
+        return prefix != null ? clientScopes.get(prefix) : null;
+    }
+
+    // Same lookup on the already parsed request path, the first segment is reused as the key so nothing is allocated
+    public String getClientScope(PathContainer path) {
+        List<PathContainer.Element> elements = path.elements();
+        // only paths shaped like /{prefix}/... carry a client scope
+        if (elements.size() < 3 || !(elements.get(1) instanceof PathSegment segment)) {
+            return null;
+        }
+        return clientScopes.get(segment.value());
     }
 
     // Add a path to the whitelist
@@ -77,13 +107,13 @@ public class DynamicRouteService {
         // Add path to Redis and publish to notify other instances
         redisTemplate.opsForSet().add("whitelistedPaths", apiRoute.getPath());
         redisTemplate.convertAndSend(routesTopic.getTopic(), "ADD PATH:" + apiRoute.getPath());
-        whitelistedPaths.add(apiRoute.getPath());
+        addWhitelistedPath(apiRoute.getPath());
     }
 
     public void addScope(ApiRoute apiRoute){
         redisTemplate.opsForValue().set(apiRoute.getPath(), apiRoute.getScope());
-        redisTemplate.convertAndSend(routesTopic.getTopic(), "ADD SCOPE:" + apiRoute.getScope());
-        clientScopes.putIfAbsent(apiRoute.getPath(), apiRoute.getScope());
+        redisTemplate.convertAndSend(routesTopic.getTopic(), "ADD SCOPE:" + apiRoute.getPath() + "=" + apiRoute.getScope());
+        putClientScope(apiRoute.getPath(), apiRoute.getScope());
     }
 
     // Remove a path from the whitelist, TODO: Not used right now but will add the logic to the UI
@@ -91,36 +121,70 @@ public class DynamicRouteService {
         // Remove path from Redis and publish to notify other instances
         redisTemplate.opsForSet().remove("whitelistedPaths", apiRoute.getPath());
         redisTemplate.convertAndSend(routesTopic.getTopic(), "REMOVE PATH:" + apiRoute.getPath());
-        whitelistedPaths.remove(apiRoute.getPath());
+        removeWhitelistedPath(apiRoute.getPath());
     }
 
     // Remove a scope from the whitelist, TODO: Not used right now but will add the logic to the UI
     public void removeScope(ApiRoute apiRoute) {
         // Remove scope from Redis and publish to notify other instances
-        redisTemplate.opsForValue().set(apiRoute.getPath(), apiRoute.getScope());
-        redisTemplate.convertAndSend(routesTopic.getTopic(), "REMOVE SCOPE:" + apiRoute.getScope());
-        clientScopes.remove(apiRoute.getPath());
+        redisTemplate.delete(apiRoute.getPath());
+        redisTemplate.convertAndSend(routesTopic.getTopic(), "REMOVE SCOPE:" + apiRoute.getPath());
+        removeClientScope(apiRoute.getPath());
+    }
+
+    // Called locally and from the whitelistPathsTopic listener, so every instance ends up with the same compiled whitelist
+    public void addWhitelistedPath(String path) {
+        if (whitelistedPaths.add(path)) {
+            rebuildWhitelistMatcher();
+        }
+    }
+
+    public void removeWhitelistedPath(String path) {
+        if (whitelistedPaths.remove(path)) {
+            rebuildWhitelistMatcher();
+        }
     }
 
     // Check if a path matches any whitelisted pattern
     public boolean isPathWhitelisted(String path) {
-        log.debug("Checking if path is whitelisted: {}", path);
-        log.debug("Current whitelisted paths: {}", whitelistedPaths);
-        
-        // First, check if the exact path is in the whitelist
-        if (whitelistedPaths.contains(path)) {
-            log.debug("Exact path match found for: {}", path);
-            return true;
+        boolean matches = whitelistMatcher.matches(path);
+        log.debug("Path {} whitelisted: {}", path, matches);
+        return matches;
+    }
+
+    // Same check on the already parsed request path, see ServerHttpRequest.getPath().pathWithinApplication()
+    public boolean isPathWhitelisted(PathContainer path) {
+        boolean matches = whitelistMatcher.matches(path);
+        log.debug("Path {} whitelisted: {}", path, matches);
+        return matches;
+    }
+
+    // Called locally and from the routes topic listener, keeps the scope near cache in sync across instances
+    public void putClientScope(String path, String scope) {
+        String prefix = scopePrefix(path);
+        if (prefix != null && scope != null && !scope.isBlank()) {
+            clientScopes.put(prefix, scope);
+        }
+    }
+
+    public void removeClientScope(String path) {
+        String prefix = scopePrefix(path);
+        if (prefix != null) {
+            clientScopes.remove(prefix);
+        }
+    }
+
+    // "/inventory/**" or "/inventory/items" -> "inventory", null if there is no "/{prefix}/" to key on
+    private static String scopePrefix(String path) {
+        if (path == null || path.length() < 3 || path.charAt(0) != '/') {
+            return null;
         }
-        
-        return whitelistedPaths.stream()
-                .anyMatch(pattern -> {
-                    AntPathMatcher matcher = new AntPathMatcher();
-                    boolean matches = matcher.match(pattern, path);
-                    if (matches) {
-                        log.debug("Path {} matched pattern {}", path, pattern);
-                    }
-                    return matches;
-                });
+        int end = path.indexOf('/', 1);
+        return end > 1 ? path.substring(1, end) : null;
+    }
+
+    private synchronized void rebuildWhitelistMatcher() {
+        whitelistMatcher = new PathWhitelistMatcher(whitelistedPaths);
+        log.debug("Rebuilt whitelist matcher with {} patterns", whitelistMatcher.size());
     }
-}
\ No newline at end of file
+}
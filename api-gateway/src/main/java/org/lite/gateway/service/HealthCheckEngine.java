@@ -0,0 +1,274 @@
+package org.lite.gateway.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.dto.ServiceDTO;
+import org.lite.gateway.entity.ApiRoute;
+import org.lite.gateway.model.HealthSnapshot;
+import org.lite.gateway.model.ServiceHealthStatus;
+import org.lite.gateway.repository.ApiRouteRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Probes every health check enabled route on its own HealthCheckConfig.interval.
+ * The routes are kept in memory and only reloaded from mongodb when the gateway routes are refreshed,
+ * each probe is scheduled with some jitter so they don't all fire at once, and at most max-concurrency probes run at a time.
+ * Results are published as an immutable, versioned HealthSnapshot of all routes, so readers never touch mongodb.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HealthCheckEngine {
+
+    private final HealthCheckService healthCheckService;
+    private final ApiRouteRepository apiRouteRepository;
+
+    // Probes running at the same time, the others wait for a free slot
+    @Value("${health.engine.max-concurrency:8}")
+    private int maxConcurrency;
+
+    // Each interval is stretched or shrunk by up to this fraction
+    @Value("${health.engine.jitter:0.1}")
+    private double jitter;
+
+    // A burst of route refresh events only reloads the routes once
+    @Value("${health.engine.reload-debounce:2s}")
+    private Duration reloadDebounce;
+
+    private final Map<String, ScheduledRoute> schedule = new ConcurrentHashMap<>();
+    private final Sinks.Many<ScheduledRoute> dueProbes = Sinks.many().unicast().onBackpressureBuffer();
+    private final Sinks.Many<Boolean> reloadRequests = Sinks.many().unicast().onBackpressureBuffer();
+    private final Sinks.Many<ServiceHealthStatus> updates = Sinks.many().multicast().directBestEffort();
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    // Random per instance and start, so two gateways (or a restarted one) never hand out the same etag for different content
+    private final String snapshotEpoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private volatile HealthSnapshot snapshot = new HealthSnapshot(0, etag(0), Collections.emptyMap());
+    // Health state behind the current etag, only touched in updateSnapshot
+    private List<List<Object>> healthState = List.of();
+    private long stateVersion;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscriptions.add(dueProbes.asFlux()
+            .flatMap(this::probe, maxConcurrency)
+            // flatMap serializes the results, so emitting here never races
+            .subscribe(updates::tryEmitNext));
+        subscriptions.add(reloadRequests.asFlux()
+            .sampleTimeout(request -> Mono.delay(reloadDebounce))
+            .concatMap(request -> reloadRoutes())
+            .subscribe());
+        requestReload();
+    }
+
+    // Gateway routes were refreshed, pick up added or removed routes and changed health check settings
+    @EventListener(RefreshRoutesEvent.class)
+    public void onRoutesRefreshed() {
+        requestReload();
+    }
+
+    // Every probe result as it comes in
+    public Flux<ServiceHealthStatus> updates() {
+        return updates.asFlux();
+    }
+
+    // Latest result of every scheduled route that has been probed at least once
+    public Map<String, ServiceHealthStatus> getLatestStatuses() {
+        Map<String, ServiceHealthStatus> statuses = new HashMap<>();
+        schedule.forEach((routeId, scheduled) -> {
+            if (scheduled.lastStatus != null) {
+                statuses.put(routeId, scheduled.lastStatus);
+            }
+        });
+        return statuses;
+    }
+
+    // Current health of every route, replaced as a whole whenever a probe result or the route set changes
+    public HealthSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscriptions.dispose();
+        schedule.values().forEach(ScheduledRoute::cancel);
+        schedule.clear();
+    }
+
+    private void requestReload() {
+        reloadRequests.emitNext(Boolean.TRUE, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+    }
+
+    private Mono<Void> reloadRoutes() {
+        return apiRouteRepository.findAll()
+            .collectList()
+            .doOnNext(this::applyRoutes)
+            .onErrorResume(e -> {
+                log.error("Error reloading health check routes, keeping the current schedule: {}", e.getMessage());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private void applyRoutes(List<ApiRoute> allRoutes) {
+        Map<String, ApiRoute> routes = new HashMap<>();
+        allRoutes.stream()
+            .filter(route -> route.getHealthCheck() != null && route.getHealthCheck().isEnabled())
+            .forEach(route -> routes.put(route.getRouteIdentifier(), route));
+
+        // routes that were removed or had their health check disabled
+        schedule.entrySet().removeIf(entry -> {
+            if (routes.containsKey(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().cancel();
+            return true;
+        });
+
+        routes.forEach((routeId, route) -> {
+            ScheduledRoute existing = schedule.get(routeId);
+            if (existing == null) {
+                ScheduledRoute scheduled = new ScheduledRoute(route);
+                schedule.put(routeId, scheduled);
+                // first probe anywhere within the first interval, so a restart doesn't probe everything at once
+                scheduleProbe(scheduled, (long) (ThreadLocalRandom.current().nextDouble() * intervalMillis(route)));
+            } else {
+                // the pending probe keeps its time, the one after it is scheduled with the new interval
+                existing.route = route;
+            }
+        });
+        updateSnapshot(services -> {
+            Map<String, ServiceDTO> updated = new TreeMap<>();
+            allRoutes.forEach(route -> {
+                String routeId = route.getRouteIdentifier();
+                ScheduledRoute scheduled = schedule.get(routeId);
+                updated.put(routeId, scheduled != null && scheduled.lastStatus != null
+                    ? ServiceDTO.from(routeId, scheduled.lastStatus)
+                    : ServiceDTO.unknown(routeId));
+            });
+            return updated;
+        });
+        log.info("Health check schedule reloaded with {} of {} routes", schedule.size(), allRoutes.size());
+    }
+
+    private Mono<ServiceHealthStatus> probe(ScheduledRoute scheduled) {
+        ApiRoute route = scheduled.route;
+        return healthCheckService.probe(route)
+            .doOnNext(status -> {
+                if (status.getServiceId() == null) {
+                    status.setServiceId(route.getRouteIdentifier());
+                }
+                scheduled.lastStatus = status;
+                if (schedule.get(route.getRouteIdentifier()) != scheduled) {
+                    // removed while the probe was running, don't bring it back into the snapshot
+                    return;
+                }
+                updateSnapshot(services -> {
+                    Map<String, ServiceDTO> updated = new TreeMap<>(services);
+                    updated.put(route.getRouteIdentifier(), ServiceDTO.from(route.getRouteIdentifier(), status));
+                    return updated;
+                });
+            })
+            .onErrorResume(e -> {
+                log.error("Health check failed for service {}: {}", route.getRouteIdentifier(), e.getMessage());
+                return Mono.empty();
+            })
+            .doFinally(signal -> {
+                // a route that was dropped from the schedule in the meantime isn't probed again
+                if (schedule.get(route.getRouteIdentifier()) == scheduled) {
+                    scheduleProbe(scheduled, nextDelayMillis(scheduled.route));
+                }
+            });
+    }
+
+    // Copy on write, readers always see a complete snapshot. The version moves with every change of the content,
+    // the weak etag only when the health state does, so lastChecked, uptime and metric noise don't defeat If-None-Match.
+    private synchronized void updateSnapshot(UnaryOperator<Map<String, ServiceDTO>> change) {
+        HealthSnapshot current = snapshot;
+        Map<String, ServiceDTO> services = change.apply(current.services());
+        if (services.equals(current.services())) {
+            return;
+        }
+        List<List<Object>> state = services.values().stream().map(ServiceDTO::healthState).toList();
+        if (!state.equals(healthState)) {
+            healthState = state;
+            stateVersion++;
+        }
+        snapshot = new HealthSnapshot(current.version() + 1, etag(stateVersion), Collections.unmodifiableMap(services));
+    }
+
+    private String etag(long stateVersion) {
+        return "W/\"" + snapshotEpoch + "-" + stateVersion + "\"";
+    }
+
+    private void scheduleProbe(ScheduledRoute scheduled, long delayMillis) {
+        scheduled.replaceTimer(Schedulers.parallel().schedule(
+            () -> dueProbes.emitNext(scheduled, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1))),
+            delayMillis, TimeUnit.MILLISECONDS));
+    }
+
+    private long nextDelayMillis(ApiRoute route) {
+        long interval = intervalMillis(route);
+        double factor = 1 + (ThreadLocalRandom.current().nextDouble() * 2 - 1) * jitter;
+        return Math.max(1000, (long) (interval * factor));
+    }
+
+    private static long intervalMillis(ApiRoute route) {
+        int interval = route.getHealthCheck().getInterval();
+        return TimeUnit.SECONDS.toMillis(interval > 0 ? interval : 30);
+    }
+
+    private static final class ScheduledRoute {
+        private volatile ApiRoute route;
+        private volatile ServiceHealthStatus lastStatus;
+        private final AtomicReference<Disposable> timer = new AtomicReference<>();
+        private volatile boolean cancelled;
+
+        private ScheduledRoute(ApiRoute route) {
+            this.route = route;
+        }
+
+        // Swapped atomically and the replaced timer disposed, so a route never has two pending probes
+        private void replaceTimer(Disposable next) {
+            Disposable previous = timer.getAndSet(next);
+            if (previous != null) {
+                previous.dispose();
+            }
+            // the route was removed while this timer was being armed
+            if (cancelled) {
+                next.dispose();
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Disposable current = timer.get();
+            if (current != null) {
+                current.dispose();
+            }
+        }
+    }
+}
@@ -8,7 +8,6 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.beans.factory.annotation.Value;
 import org.lite.gateway.model.ServiceHealthStatus;
 import org.lite.gateway.model.TrendAnalysis;
-import org.lite.gateway.dto.ServiceDTO;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -21,8 +20,6 @@ import org.springframework.http.MediaType;
 import org.springframework.http.HttpHeaders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.discovery.EurekaClient;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Optional;
 
 @Service
 @Validated
@@ -41,7 +38,6 @@ public class HealthCheckService {
     private final MetricsAggregator metricsAggregator;
     private final AlertService alertService;
     private final EurekaClient eurekaClient;
-    private final Map<String, ServiceDTO> serviceHealthCache = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper;
 
     public HealthCheckService(
@@ -77,6 +73,11 @@ public class HealthCheckService {
             .flatMap(this::checkHealth);
     }
 
+    // Probe a route the caller already holds, used by the health check engine so no lookup is needed per probe
+    public Mono<ServiceHealthStatus> probe(ApiRoute route) {
+        return checkHealth(route);
+    }
+
     private Duration parseDuration(String uptimeStr) {
         try {
             // Format is "0d 0h 0m 46s"
@@ -159,7 +160,6 @@ public class HealthCheckService {
         return metricsAggregator.analyzeTrends(serviceId); // Use MetricsAggregator to get trends from Redis
     }
 
-    @SuppressWarnings("unchecked")
     private Mono<ServiceHealthStatus> checkHealth(ApiRoute route) {
         String serviceId = route.getRouteIdentifier();
 
@@ -168,7 +168,14 @@ public class HealthCheckService {
             return Mono.empty();
         }
 
-        String healthEndpoint = getHealthEndpoint(route);
+        // the first probe of a service loads its history from redis off the event loop, so the appends never block
+        return metricsAggregator.warmUp(serviceId)
+            .then(Mono.defer(() -> requestHealth(route, getHealthEndpoint(route))));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Mono<ServiceHealthStatus> requestHealth(ApiRoute route, String healthEndpoint) {
+        String serviceId = route.getRouteIdentifier();
         long startTime = System.currentTimeMillis();
         
         return webClientBuilder.build()
@@ -178,6 +185,7 @@ public class HealthCheckService {
             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
             .retrieve()
             .bodyToMono(String.class)
+            .timeout(getTimeout(route))
             .map(responseBody -> {
                 try {
                     Map<String, Object> healthData = objectMapper.readValue(responseBody, Map.class);
@@ -224,6 +232,8 @@ public class HealthCheckService {
             alertService.resolveHealthAlerts(serviceId).subscribe();
         }
         
+        status.setTrends(trends);
+
         // Store trends analysis in Redis if needed
         if (!trends.isEmpty()) {
             metricsAggregator.storeTrendAnalysis(serviceId, trends);
@@ -254,6 +264,12 @@ public class HealthCheckService {
             );
     }
 
+    // A probe that doesn't answer within the configured timeout counts as DOWN
+    private Duration getTimeout(ApiRoute route) {
+        int timeout = route.getHealthCheck().getTimeout();
+        return Duration.ofSeconds(timeout > 0 ? timeout : 5);
+    }
+
     private String getHealthEndpoint(ApiRoute route) {
         String protocol = sslEnabled ? "https" : "http";
         String basePath = route.getPath().replaceAll("/\\*\\*", "");
@@ -272,8 +288,4 @@ public class HealthCheckService {
             return false;
         }
     }
-
-    public Optional<ServiceDTO> getServiceHealth(String serviceId) {
-        return Optional.ofNullable(serviceHealthCache.get(serviceId));
-    }
 } 
\ No newline at end of file
@@ -0,0 +1,251 @@
+package org.lite.gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.dto.LinqRequest;
+import org.lite.gateway.dto.LinqResponse;
+import org.lite.gateway.repository.LinqToolRepository;
+import org.lite.gateway.util.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache layer for LINQ fetch requests.
+ * Keys are the SHA-256 of the team, target, action, intent and sorted params, so identical intents share an entry.
+ * Identical misses are coalesced into one downstream call, stale entries are served while a single background
+ * call revalidates them, and the TTL comes from the target's LinqTool (linq.cache.ttl if it has none).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LinqCacheService {
+
+    private static final String LINQ_CACHE_PREFIX = "linq:";
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte FLAG_GZIP = 1;
+    // version + flags + freshUntil
+    private static final int HEADER_SIZE = 1 + 1 + Long.BYTES;
+    private static final int GZIP_THRESHOLD = 1024;
+
+    private final ReactiveRedisTemplate<String, byte[]> reactiveByteRedisTemplate;
+    private final LinqToolRepository linqToolRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${linq.cache.ttl:5m}")
+    private Duration defaultTtl;
+
+    // How long an entry may still be served after its TTL while it is being revalidated
+    @Value("${linq.cache.stale-window:1m}")
+    private Duration staleWindow;
+
+    // How long the per target TTL read from LinqTool is remembered
+    @Value("${linq.cache.policy-ttl:1m}")
+    private Duration policyTtl;
+
+    private final Map<String, Mono<LinqResponse>> inflightRequests = new ConcurrentHashMap<>();
+    private final Set<String> revalidatingKeys = ConcurrentHashMap.newKeySet();
+    private BoundedTtlCache<String, Duration> ttlPolicies;
+
+    @PostConstruct
+    public void init() {
+        this.ttlPolicies = new BoundedTtlCache<>(1000);
+    }
+
+    /**
+     * Serve the request from the cache, or run execution (a lazy Mono) at most once for all concurrent identical requests
+     */
+    public Mono<LinqResponse> getOrExecute(LinqRequest request, String teamId, Mono<LinqResponse> execution) {
+        // Only reads are cached, create/update/delete always go to the service
+        if (!"fetch".equalsIgnoreCase(request.getLink().getAction())) {
+            return execution;
+        }
+        String target = request.getLink().getTarget();
+
+        return resolveTtl(target, teamId)
+            .flatMap(ttl -> {
+                if (ttl.isZero() || ttl.isNegative()) {
+                    return execution;
+                }
+                String cacheKey = generateCacheKey(request, teamId);
+                return read(cacheKey)
+                    .flatMap(entry -> Mono.deferContextual(context -> {
+                        if (System.currentTimeMillis() >= entry.freshUntil()) {
+                            // stale, serve it anyway and refresh it behind the caller's back
+                            revalidate(cacheKey, ttl, execution, context);
+                        }
+                        entry.response().getMetadata().setCacheHit(true);
+                        return Mono.just(entry.response());
+                    }))
+                    .switchIfEmpty(Mono.defer(() -> executeOnce(cacheKey, ttl, execution)));
+            });
+    }
+
+    // Concurrent callers with the same key share one execution, it runs with the first caller's security context
+    private Mono<LinqResponse> executeOnce(String cacheKey, Duration ttl, Mono<LinqResponse> execution) {
+        return inflightRequests.computeIfAbsent(cacheKey, key -> execution
+            .flatMap(response -> write(key, response, ttl).thenReturn(response))
+            .doFinally(signal -> inflightRequests.remove(key))
+            .cache());
+    }
+
+    private void revalidate(String cacheKey, Duration ttl, Mono<LinqResponse> execution, ContextView context) {
+        if (!revalidatingKeys.add(cacheKey)) {
+            return;
+        }
+        executeOnce(cacheKey, ttl, execution)
+            .contextWrite(context)
+            .doFinally(signal -> revalidatingKeys.remove(cacheKey))
+            .subscribe(
+                response -> log.debug("Revalidated LINQ cache entry {}", cacheKey),
+                error -> log.error("Error revalidating LINQ cache entry {}: {}", cacheKey, error.getMessage()));
+    }
+
+    private Mono<Duration> resolveTtl(String target, String teamId) {
+        String policyKey = target + ":" + teamId;
+        Duration cached = ttlPolicies.get(policyKey);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return linqToolRepository.findByTargetAndTeam(target, teamId)
+            .map(tool -> tool.getCacheTtlSeconds() != null ? Duration.ofSeconds(tool.getCacheTtlSeconds()) : defaultTtl)
+            .defaultIfEmpty(defaultTtl)
+            .onErrorResume(e -> {
+                log.error("Error reading the LINQ cache policy for {}: {}", target, e.getMessage());
+                return Mono.just(defaultTtl);
+            })
+            .doOnNext(ttl -> ttlPolicies.put(policyKey, ttl, System.currentTimeMillis() + policyTtl.toMillis()));
+    }
+
+    private Mono<CacheEntry> read(String cacheKey) {
+        return reactiveByteRedisTemplate.opsForValue().get(cacheKey)
+            .mapNotNull(bytes -> {
+                try {
+                    return deserialize(bytes);
+                } catch (IOException e) {
+                    log.error("Failed to deserialize cached LinqResponse {}: {}", cacheKey, e.getMessage());
+                    return null;
+                }
+            })
+            .onErrorResume(e -> {
+                log.error("Error reading LINQ cache entry {}: {}", cacheKey, e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Boolean> write(String cacheKey, LinqResponse response, Duration ttl) {
+        // never cache a failed call
+        if (response.getMetadata() == null || !"success".equals(response.getMetadata().getStatus())) {
+            return Mono.just(false);
+        }
+        try {
+            byte[] bytes = serialize(response, System.currentTimeMillis() + ttl.toMillis());
+            return reactiveByteRedisTemplate.opsForValue().set(cacheKey, bytes, ttl.plus(staleWindow))
+                .onErrorResume(e -> {
+                    log.error("Error writing LINQ cache entry {}: {}", cacheKey, e.getMessage());
+                    return Mono.just(false);
+                });
+        } catch (IOException e) {
+            log.error("Failed to serialize LinqResponse for cache: {}", e.getMessage());
+            return Mono.just(false);
+        }
+    }
+
+    // [version][flags][freshUntil][body], the body is the response as JSON bytes, gzipped once it gets large
+    private byte[] serialize(LinqResponse response, long freshUntil) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(response);
+        byte flags = 0;
+        if (body.length > GZIP_THRESHOLD) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+            try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            flags |= FLAG_GZIP;
+        }
+        return ByteBuffer.allocate(HEADER_SIZE + body.length)
+            .put(FORMAT_VERSION)
+            .put(flags)
+            .putLong(freshUntil)
+            .put(body)
+            .array();
+    }
+
+    private CacheEntry deserialize(byte[] bytes) throws IOException {
+        if (bytes.length < HEADER_SIZE || bytes[0] != FORMAT_VERSION) {
+            // written by an older version, treat it as a miss
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.get();
+        byte flags = buffer.get();
+        long freshUntil = buffer.getLong();
+        LinqResponse response;
+        if ((flags & FLAG_GZIP) != 0) {
+            try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE))) {
+                response = objectMapper.readValue(gzip, LinqResponse.class);
+            }
+        } else {
+            response = objectMapper.readValue(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE, LinqResponse.class);
+        }
+        return new CacheEntry(response, freshUntil);
+    }
+
+    // Stable across instances and restarts, unlike query.hashCode()
+    private String generateCacheKey(LinqRequest request, String teamId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, teamId);
+            update(digest, request.getLink().getTarget());
+            update(digest, request.getLink().getAction().toLowerCase());
+            update(digest, request.getQuery().getIntent());
+            Map<String, String> params = request.getQuery().getParams();
+            if (params != null) {
+                for (Map.Entry<String, String> param : new TreeMap<>(params).entrySet()) {
+                    update(digest, param.getKey());
+                    update(digest, param.getValue());
+                }
+            }
+            return LINQ_CACHE_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Length prefixed, so ("ab", "c") and ("a", "bc") never collide
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(-1).array());
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private record CacheEntry(LinqResponse response, long freshUntil) {
+    }
+}
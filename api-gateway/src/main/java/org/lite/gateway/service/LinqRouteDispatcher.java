@@ -0,0 +1,166 @@
+package org.lite.gateway.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.dto.LinqRequest;
+import org.lite.gateway.entity.ApiMetric;
+import org.lite.gateway.filter.CircuitBreakerFilter;
+import org.lite.gateway.filter.ResilienceFilterChain;
+import org.lite.gateway.service.impl.ApiRouteLocatorImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreaker;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends LINQ calls straight to the upstream service of the target route instead of looping back through the gateway.
+ * The route is resolved from the cached gateway routes, lb:// targets go through the load balancer,
+ * so there is no second TLS handshake, security check or route lookup.
+ * Only the circuit breaker, a timeout and the metrics are applied here, so routes with any other resilience filter
+ * (rate limiter and daily quota, time limiter, retry, payload capture) are left to the gateway loopback.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LinqRouteDispatcher {
+
+    private final RouteLocator routeLocator;
+    private final WebClient.Builder webClientBuilder;
+    private final ReactorLoadBalancerExchangeFilterFunction loadBalancerExchangeFilterFunction;
+    private final CircuitBreakerRegistryService circuitBreakerRegistryService;
+    private final TokenRelayService tokenRelayService;
+    private final MetricService metricService;
+    private final ApiRouteLocatorImpl apiRouteLocator;
+
+    @Value("${linq.dispatch.timeout:30s}")
+    private Duration timeout;
+
+    // Shared clients, built once and reused for every call
+    private WebClient webClient;
+    private WebClient loadBalancedWebClient;
+    private final Map<String, PathPattern> routePathPatterns = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        this.webClient = webClientBuilder.clone().build();
+        this.loadBalancedWebClient = webClientBuilder.clone()
+                .filter(loadBalancerExchangeFilterFunction)
+                .build();
+    }
+
+    /**
+     * Invoke the target route directly, empty if the route can't be resolved or has filters that only the gateway applies,
+     * so the caller can go through the gateway instead
+     */
+    public Mono<Object> dispatch(HttpMethod method, String target, String intent, LinqRequest request, String apiKey) {
+        String path = "/" + target + "/" + intent;
+        return routeLocator.getRoutes()
+                .filter(route -> target.equals(route.getId()) && matchesRoutePath(route, path))
+                .next()
+                .filter(this::canDispatchDirectly)
+                .flatMap(route -> invoke(route, method, path, request, apiKey));
+    }
+
+    // Only a circuit breaker is applied in-process, anything else in the route's chain needs the gateway
+    private boolean canDispatchDirectly(Route route) {
+        ResilienceFilterChain chain = apiRouteLocator.getResilienceFilterChains().get(route.getId());
+        if (chain == null) {
+            return false;
+        }
+        boolean supported = chain.getFilters().stream().allMatch(filter -> filter instanceof CircuitBreakerFilter);
+        if (!supported) {
+            log.debug("Route {} has filters that only run in the gateway, not dispatching LINQ directly", route.getId());
+        }
+        return supported;
+    }
+
+    private Mono<Object> invoke(Route route, HttpMethod method, String path, LinqRequest request, String apiKey) {
+        URI routeUri = route.getUri();
+        boolean loadBalanced = "lb".equals(routeUri.getScheme());
+        UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUri(routeUri)
+                .scheme(loadBalanced ? "http" : routeUri.getScheme())
+                .path(path);
+        Map<String, String> params = request.getQuery().getParams();
+        if (params != null) {
+            params.forEach(uriBuilder::queryParam);
+        }
+        URI uri = uriBuilder.build().encode().toUri();
+        log.debug("Dispatching LINQ {} {} directly to route {}", method, uri, route.getId());
+
+        WebClient client = loadBalanced ? loadBalancedWebClient : webClient;
+        WebClient.RequestBodySpec requestSpec = client.method(method).uri(uri);
+        if (method == HttpMethod.POST || method == HttpMethod.PUT) {
+            requestSpec.bodyValue(params != null ? params : Map.of());
+        }
+        requestSpec.header("X-API-Key", apiKey);
+        // Same token the relay filter would have added on the way through the gateway
+        String gatewayAuthorization = tokenRelayService.getCachedAuthorizationHeader();
+        if (gatewayAuthorization != null) {
+            requestSpec.header("Authorization", gatewayAuthorization);
+        }
+
+        Mono<Object> call = requestSpec.exchangeToMono(response -> {
+            if (response.statusCode().is2xxSuccessful()) {
+                return response.bodyToMono(Object.class)
+                    .switchIfEmpty(Mono.just(Map.of("message", "Success but no content")));
+            } else {
+                return response.bodyToMono(String.class)
+                    .defaultIfEmpty("")
+                    .flatMap(error -> Mono.error(new RuntimeException(
+                        "Service returned " + response.statusCode() + ": " + error)));
+            }
+        }).timeout(timeout);
+
+        ReactiveCircuitBreaker circuitBreaker = circuitBreakerRegistryService.findCircuitBreaker(route.getId());
+        if (circuitBreaker != null) {
+            call = circuitBreaker.run(call, Mono::error);
+        }
+
+        Mono<Object> measuredCall = call;
+        return Mono.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            return measuredCall
+                    .doOnSuccess(result -> captureMetric(route, path, startTime, true))
+                    .doOnError(error -> captureMetric(route, path, startTime, false));
+        });
+    }
+
+    // The route metadata carries the ApiRoute path, the target only matches if the loopback URL would have hit this route too
+    private boolean matchesRoutePath(Route route, String path) {
+        Object routePath = route.getMetadata().get(ApiRouteLocatorImpl.API_ROUTE_PATH_METADATA);
+        if (!(routePath instanceof String pattern)) {
+            return false;
+        }
+        return routePathPatterns.computeIfAbsent(pattern, PathPatternParser.defaultInstance::parse)
+                .matches(PathContainer.parsePath(path));
+    }
+
+    private void captureMetric(Route route, String path, long startTime, boolean success) {
+        ApiMetric metric = new ApiMetric();
+        metric.setRouteIdentifier(route.getId());
+        metric.setTimestamp(LocalDateTime.now());
+        metric.setDuration(System.currentTimeMillis() - startTime);
+        metric.setSuccess(success);
+        metric.setFromService("linq");
+        metric.setToService(route.getUri().getHost());
+        metric.setInteractionType("APP_TO_APP");
+        metric.setPathEndPoint(path);
+        metricService.saveMetric(metric).subscribe();
+    }
+}
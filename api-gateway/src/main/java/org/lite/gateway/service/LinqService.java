@@ -1,10 +1,17 @@
 package org.lite.gateway.service;
 
+import org.lite.gateway.dto.LinqBatchResult;
 import org.lite.gateway.dto.LinqRequest;
 import org.lite.gateway.dto.LinqResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface LinqService {
 
     Mono<LinqResponse> processLinqRequest(LinqRequest request);
+
+    // Runs the requests concurrently and emits one result per request in the order they were sent
+    Flux<LinqBatchResult> processLinqBatch(List<LinqRequest> requests);
 }
@@ -1,18 +1,26 @@
 package org.lite.gateway.service;
 
 import org.lite.gateway.entity.ApiMetric;
-import org.lite.gateway.repository.ApiMetricRepository;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 @Service
 public class MetricService {
-    private final ApiMetricRepository apiMetricRepository;
+    private final MetricsStorageService metricsStorageService;
+    private final MetricsBatchWriter metricsBatchWriter;
+    private final MetricsRollupService metricsRollupService;
+
+    @Value("${metrics.writer.enabled:true}")
+    private boolean batchWriterEnabled;
 
     @Autowired
-    public MetricService(ApiMetricRepository apiMetricRepository) {
-        this.apiMetricRepository = apiMetricRepository;
+    public MetricService(MetricsStorageService metricsStorageService, MetricsBatchWriter metricsBatchWriter,
+                         MetricsRollupService metricsRollupService) {
+        this.metricsStorageService = metricsStorageService;
+        this.metricsBatchWriter = metricsBatchWriter;
+        this.metricsRollupService = metricsRollupService;
     }
 
     public Mono<Void> saveMetric(ApiMetric metric) {
@@ -20,7 +28,13 @@ public class MetricService {
         if (isHealthCheckRequest(metric)) {
             return Mono.empty();
         }
-        return apiMetricRepository.save(metric).then();
+        // Counted in the minute, hour and day rollups the dashboards read
+        Mono<Void> rollup = Mono.fromRunnable(() -> metricsRollupService.record(metric));
+        if (batchWriterEnabled) {
+            // Queued for the next bulk insert, this never waits for Mongo
+            return rollup.then(Mono.fromRunnable(() -> metricsBatchWriter.enqueue(metric)));
+        }
+        return rollup.then(metricsStorageService.save(metric));
     }
 
     private boolean isHealthCheckRequest(ApiMetric metric) {
@@ -1,113 +1,150 @@
 package org.lite.gateway.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.model.MetricPoint;
 import org.lite.gateway.model.TrendAnalysis;
 import org.lite.gateway.model.TrendDirection;
+import org.lite.gateway.util.BoundedTtlCache;
+import org.lite.gateway.util.MetricRingBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short per service, per metric history of the health check metrics.
+ * Each metric lives in a local ring buffer, appends are O(1) and reads never deserialize anything.
+ * Every append is mirrored to a capped redis list by one Lua script per service (RPUSH + LTRIM for all its metrics),
+ * so the redis copy is updated atomically even with several gateways writing, and a node that starts cold loads it once.
+ */
 @Service
 @Slf4j
 public class MetricsAggregator {
-    private static final int DEFAULT_MAX_HISTORY_SIZE = 100;
     private static final String METRICS_KEY_PREFIX = "metrics:";
-    
+    private static final String SERIES_KEY_PREFIX = "metrics:ts:";
+
+    // KEYS[1] is the set of metric names, KEYS[2..] one list per metric
+    // ARGV[1] max size, ARGV[2] ttl in seconds, then one point per list, then the metric names in the same order
+    private static final RedisScript<Long> APPEND_SCRIPT = RedisScript.of("""
+            local maxSize = tonumber(ARGV[1])
+            local ttl = tonumber(ARGV[2])
+            local n = #KEYS - 1
+            for i = 1, n do
+                redis.call('RPUSH', KEYS[i + 1], ARGV[2 + i])
+                redis.call('LTRIM', KEYS[i + 1], -maxSize, -1)
+                redis.call('EXPIRE', KEYS[i + 1], ttl)
+                redis.call('SADD', KEYS[1], ARGV[2 + n + i])
+            end
+            redis.call('EXPIRE', KEYS[1], ttl)
+            return n
+            """, Long.class);
+
     private final RedisTemplate<String, String> redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
     private final ObjectMapper objectMapper;
 
+    // Points kept per metric, locally and in redis
+    @Value("${metrics.history.size:100}")
+    private int historySize;
+
+    // Redis copies of services that stopped reporting go away after this long
+    @Value("${metrics.history.ttl:7d}")
+    private Duration historyTtl;
+
+    // Services with no history in redis are remembered this long, so repeated reads of unknown ids skip redis
+    @Value("${metrics.history.negative-ttl:30s}")
+    private Duration negativeTtl;
+
+    private final Map<String, Map<String, MetricRingBuffer>> series = new ConcurrentHashMap<>();
+    private final BoundedTtlCache<String, Boolean> missingSeries = new BoundedTtlCache<>(10_000);
+
     public MetricsAggregator(
             RedisTemplate<String, String> redisTemplate,
+            ReactiveStringRedisTemplate reactiveStringRedisTemplate,
             ObjectMapper objectMapper
     ) {
         this.redisTemplate = redisTemplate;
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
         this.objectMapper = objectMapper;
     }
 
+    // Loads the redis history of a service this node hasn't seen yet on boundedElastic, nothing to do once it is local.
+    // Writers wait for it before addMetrics, so the first append of a service never blocks a Netty thread.
+    public Mono<Void> warmUp(String serviceId) {
+        if (series.containsKey(serviceId)) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> getSeries(serviceId, true))
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+
     public void addMetrics(String serviceId, Map<String, Double> newMetrics) {
-        String redisKey = METRICS_KEY_PREFIX + serviceId;
+        if (newMetrics.isEmpty()) {
+            return;
+        }
+        Map<String, MetricRingBuffer> buffers = getSeries(serviceId, true);
         long timestamp = System.currentTimeMillis();
 
-        newMetrics.forEach((newMetric, value) -> {
-            try {
-                // Get existing points
-                String jsonPoints = (String) redisTemplate.opsForHash().get(redisKey, newMetric);
-                List<MetricPoint> points = jsonPoints != null ?
-                    objectMapper.readValue(jsonPoints, new TypeReference<List<MetricPoint>>() {}) :
-                    new ArrayList<>();
-
-                // Add new point
-                points.add(new MetricPoint(newMetric, value, timestamp));
-
-                // Keep only the latest points
-                if (points.size() > DEFAULT_MAX_HISTORY_SIZE) {
-                    points = points.subList(points.size() - DEFAULT_MAX_HISTORY_SIZE, points.size());
-                }
-
-                // Store updated points
-                String updatedJson = objectMapper.writeValueAsString(points);
-                redisTemplate.opsForHash().put(redisKey, newMetric, updatedJson);
-            } catch (JsonProcessingException e) {
-                log.error("Error storing new metrics for service {} metric {}: {}", 
-                    serviceId, newMetric, e.getMessage());
-            }
+        String indexKey = seriesKey(serviceId);
+        List<String> keys = new ArrayList<>(newMetrics.size() + 1);
+        List<String> points = new ArrayList<>(newMetrics.size());
+        List<String> names = new ArrayList<>(newMetrics.size());
+        keys.add(indexKey);
+        newMetrics.forEach((metric, value) -> {
+            buffers.computeIfAbsent(metric, name -> new MetricRingBuffer(historySize))
+                .append(timestamp, value);
+            keys.add(indexKey + ":" + metric);
+            points.add(encodePoint(timestamp, value));
+            names.add(metric);
         });
+
+        List<String> args = new ArrayList<>(2 + points.size() + names.size());
+        args.add(String.valueOf(historySize));
+        args.add(String.valueOf(historyTtl.toSeconds()));
+        args.addAll(points);
+        args.addAll(names);
+        reactiveStringRedisTemplate.execute(APPEND_SCRIPT, keys, args)
+            .subscribe(
+                count -> log.debug("Mirrored {} metrics of service {} to redis", count, serviceId),
+                error -> log.error("Error storing new metrics for service {}: {}", serviceId, error.getMessage()));
     }
 
     public Map<String, TrendAnalysis> analyzeTrends(String serviceId) {
         Map<String, TrendAnalysis> trends = new HashMap<>();
-        String redisKey = METRICS_KEY_PREFIX + serviceId;
-
-        Map<Object, Object> entries = redisTemplate.opsForHash().entries(redisKey);
-        entries.forEach((metric, jsonPoints) -> {
-            try {
-                List<MetricPoint> points = objectMapper.readValue((String) jsonPoints, 
-                    new TypeReference<List<MetricPoint>>() {});
-                trends.put((String) metric, calculateTrend(points));
-            } catch (JsonProcessingException e) {
-                log.error("Error analyzing trends for service {} metric {}: {}", 
-                    serviceId, metric, e.getMessage());
-            }
-        });
-
+        getSeries(serviceId, false).forEach((metric, buffer) -> trends.put(metric, calculateTrend(buffer)));
         return trends;
     }
 
-    private TrendAnalysis calculateTrend(List<MetricPoint> points) {
-        if (points.size() < 2) return new TrendAnalysis(0.0, TrendDirection.STABLE);
-        
-        MetricPoint recentPoint = points.getLast();
-        MetricPoint previousPoint = points.get(points.size() - 2);
-        double recent = recentPoint.getValue();
-        double previous = previousPoint.getValue();
+    private TrendAnalysis calculateTrend(MetricRingBuffer buffer) {
+        double recent = buffer.valueFromLatest(0);
+        double previous = buffer.valueFromLatest(1);
+        if (Double.isNaN(recent) || Double.isNaN(previous)) return new TrendAnalysis(0.0, TrendDirection.STABLE);
         return TrendAnalysis.fromValues(recent, previous);
     }
 
     public Map<String, List<MetricPoint>> getMetricsHistory(String serviceId) {
         Map<String, List<MetricPoint>> history = new HashMap<>();
-        String redisKey = METRICS_KEY_PREFIX + serviceId;
-
-        Map<Object, Object> entries = redisTemplate.opsForHash().entries(redisKey);
-        entries.forEach((metric, jsonPoints) -> {
-            try {
-                List<MetricPoint> points = objectMapper.readValue((String) jsonPoints, 
-                    new TypeReference<List<MetricPoint>>() {});
-                history.put((String) metric, points);
-            } catch (JsonProcessingException e) {
-                log.error("Error retrieving metrics history for service {} metric {}: {}", 
-                    serviceId, metric, e.getMessage());
-            }
-        });
-
+        getSeries(serviceId, false).forEach((metric, buffer) -> history.put(metric, buffer.toPoints(metric)));
         return history;
     }
 
+    // Raw buffers of a service, for callers that walk the points without copying them
+    public Map<String, MetricRingBuffer> getMetricBuffers(String serviceId) {
+        return Collections.unmodifiableMap(getSeries(serviceId, false));
+    }
+
     public void storeTrendAnalysis(String serviceId, Map<String, TrendAnalysis> trends) {
         try {
             String redisKey = METRICS_KEY_PREFIX + serviceId + ":trends";
@@ -119,11 +156,93 @@ public class MetricsAggregator {
     }
 
     public Map<String, Double> getCurrentMetrics(String serviceId) {
-        return getMetricsHistory(serviceId).entrySet().stream()
-            .filter(entry -> !entry.getValue().isEmpty())
-            .collect(Collectors.toMap(
-                Map.Entry::getKey,
-                e -> e.getValue().get(e.getValue().size() - 1).getValue()
-            ));
+        Map<String, Double> current = new HashMap<>();
+        getSeries(serviceId, false).forEach((metric, buffer) -> {
+            double latest = buffer.valueFromLatest(0);
+            if (!Double.isNaN(latest)) {
+                current.put(metric, latest);
+            }
+        });
+        return current;
+    }
+
+    // Local buffers of a service, loaded from redis the first time this node sees it.
+    // Reads of a service nobody has written to aren't kept, so random ids can't grow the map,
+    // they are only remembered briefly in the bounded negative cache. The redis load blocks, callers on the
+    // event loop subscribe on boundedElastic.
+    private Map<String, MetricRingBuffer> getSeries(String serviceId, boolean forWrite) {
+        Map<String, MetricRingBuffer> buffers = series.get(serviceId);
+        if (buffers != null) {
+            return buffers;
+        }
+        if (!forWrite && missingSeries.get(serviceId) != null) {
+            return Map.of();
+        }
+        // loaded outside the map, a concurrent loser just drops its copy
+        Map<String, MetricRingBuffer> loaded = loadSeries(serviceId);
+        if (loaded.isEmpty() && !forWrite) {
+            missingSeries.put(serviceId, Boolean.TRUE, System.currentTimeMillis() + negativeTtl.toMillis());
+            return loaded;
+        }
+        missingSeries.remove(serviceId);
+        Map<String, MetricRingBuffer> existing = series.putIfAbsent(serviceId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, MetricRingBuffer> loadSeries(String serviceId) {
+        Map<String, MetricRingBuffer> buffers = new ConcurrentHashMap<>();
+        String indexKey = seriesKey(serviceId);
+        try {
+            Set<String> metrics = redisTemplate.opsForSet().members(indexKey);
+            if (metrics == null || metrics.isEmpty()) {
+                return buffers;
+            }
+            List<String> names = new ArrayList<>(metrics);
+            // one round trip for all the metrics of the service
+            List<Object> ranges = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, String> stringOperations = (RedisOperations<String, String>) operations;
+                    names.forEach(metric -> stringOperations.opsForList().range(indexKey + ":" + metric, 0, -1));
+                    return null;
+                }
+            });
+            for (int i = 0; i < names.size(); i++) {
+                MetricRingBuffer buffer = new MetricRingBuffer(historySize);
+                if (ranges.get(i) instanceof List<?> encodedPoints) {
+                    for (Object encoded : encodedPoints) {
+                        decodePoint((String) encoded, buffer);
+                    }
+                }
+                buffers.put(names.get(i), buffer);
+            }
+        } catch (Exception e) {
+            log.error("Error loading metrics history for service {} from redis: {}", serviceId, e.getMessage());
+        }
+        return buffers;
+    }
+
+    // Hash tag keeps all the keys of one service in the same cluster slot, the Lua script needs that
+    private static String seriesKey(String serviceId) {
+        return SERIES_KEY_PREFIX + "{" + serviceId + "}";
+    }
+
+    // timestamp:value
+    private static String encodePoint(long timestamp, double value) {
+        return timestamp + ":" + value;
+    }
+
+    private static void decodePoint(String encoded, MetricRingBuffer buffer) {
+        int separator = encoded.indexOf(':');
+        if (separator <= 0) {
+            return;
+        }
+        try {
+            buffer.append(Long.parseLong(encoded, 0, separator, 10),
+                Double.parseDouble(encoded.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed metric point {}", encoded);
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+package org.lite.gateway.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.internal.PlatformDependent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.entity.ApiMetric;
+import org.lite.gateway.enums.MetricsOverflowPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers ApiMetric documents in a bounded MPSC ring buffer and writes them to Mongo with bulk inserts,
+ * either when a full batch is queued or when the flush interval elapses. Only one insert is in flight at a time,
+ * when Mongo falls behind the queue fills up and the overflow policy decides what gets dropped.
+ */
+@Service
+@Slf4j
+public class MetricsBatchWriter {
+
+    private final MetricsStorageService metricsStorageService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${metrics.writer.capacity:10000}")
+    private int capacity;
+
+    @Value("${metrics.writer.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${metrics.writer.flush-interval:200ms}")
+    private Duration flushInterval;
+
+    @Value("${metrics.writer.overflow-policy:DROP}")
+    private MetricsOverflowPolicy overflowPolicy;
+
+    @Value("${metrics.writer.sample-threshold:0.8}")
+    private double sampleThreshold;
+
+    @Value("${metrics.writer.sample-rate:10}")
+    private int sampleRate;
+
+    private Queue<ApiMetric> queue;
+    private int sampleThresholdSize;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean stopping;
+    private final AtomicLong sampleSequence = new AtomicLong();
+    private final Scheduler drainScheduler = Schedulers.newSingle("metrics-writer", true);
+    private Disposable flushTicker;
+
+    private Counter enqueuedCounter;
+    private Counter flushedCounter;
+    private Counter droppedCounter;
+    private Counter failedCounter;
+    private Timer flushTimer;
+
+    public MetricsBatchWriter(MetricsStorageService metricsStorageService, MeterRegistry meterRegistry) {
+        this.metricsStorageService = metricsStorageService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.queue = PlatformDependent.newFixedMpscQueue(capacity);
+        this.sampleThresholdSize = (int) (capacity * sampleThreshold);
+
+        this.enqueuedCounter = meterRegistry.counter("gateway.metrics.writer.enqueued");
+        this.flushedCounter = meterRegistry.counter("gateway.metrics.writer.flushed");
+        this.droppedCounter = meterRegistry.counter("gateway.metrics.writer.dropped");
+        this.failedCounter = meterRegistry.counter("gateway.metrics.writer.failed");
+        this.flushTimer = meterRegistry.timer("gateway.metrics.writer.flush");
+        Gauge.builder("gateway.metrics.writer.queue.size", () -> queue.size()).register(meterRegistry);
+
+        this.flushTicker = Flux.interval(flushInterval, drainScheduler)
+                .subscribe(tick -> requestDrain());
+        log.info("Metrics writer started, capacity: {}, batchSize: {}, flushInterval: {}, overflowPolicy: {}",
+                capacity, batchSize, flushInterval, overflowPolicy);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushTicker.dispose();
+        // Stop the drain chain after its current insert and take over the consumer side before writing whatever is left
+        stopping = true;
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        boolean acquired;
+        while (!(acquired = draining.compareAndSet(false, true)) && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        if (!acquired) {
+            // the queue must keep a single consumer, so the remaining metrics are given up
+            log.warn("Metrics writer still busy at shutdown, {} queued metrics not written", queue.size());
+            drainScheduler.dispose();
+            return;
+        }
+        List<ApiMetric> batch;
+        while (!(batch = pollBatch()).isEmpty()) {
+            insert(batch).block(Duration.ofSeconds(5));
+        }
+        drainScheduler.dispose();
+    }
+
+    // Never blocks, returns false if the metric was dropped by the overflow policy
+    public boolean enqueue(ApiMetric metric) {
+        if (overflowPolicy == MetricsOverflowPolicy.SAMPLE
+                && queue.size() >= sampleThresholdSize
+                && sampleSequence.incrementAndGet() % sampleRate != 0) {
+            droppedCounter.increment();
+            return false;
+        }
+        if (!queue.offer(metric)) {
+            droppedCounter.increment();
+            return false;
+        }
+        enqueuedCounter.increment();
+        if (queue.size() >= batchSize) {
+            requestDrain();
+        }
+        return true;
+    }
+
+    private void requestDrain() {
+        if (draining.compareAndSet(false, true)) {
+            drainScheduler.schedule(this::drain);
+        }
+    }
+
+    // Only one drain runs at a time (guarded by the draining flag), so the queue always has a single consumer
+    private void drain() {
+        if (stopping) {
+            // shutdown writes the rest itself
+            draining.set(false);
+            return;
+        }
+        List<ApiMetric> batch = pollBatch();
+        if (batch.isEmpty()) {
+            draining.set(false);
+            // A producer may have filled a batch between the poll and the flag reset
+            if (queue.size() >= batchSize) {
+                requestDrain();
+            }
+            return;
+        }
+        insert(batch)
+                .doFinally(signal -> drainScheduler.schedule(this::drain))
+                .subscribe();
+    }
+
+    private List<ApiMetric> pollBatch() {
+        List<ApiMetric> batch = new ArrayList<>(Math.min(batchSize, Math.max(queue.size(), 1)));
+        ApiMetric metric;
+        while (batch.size() < batchSize && (metric = queue.poll()) != null) {
+            batch.add(metric);
+        }
+        return batch;
+    }
+
+    private Mono<Void> insert(List<ApiMetric> batch) {
+        long startTime = System.nanoTime();
+        return metricsStorageService.insert(batch)
+                .doOnSuccess(ignored -> {
+                    flushTimer.record(Duration.ofNanos(System.nanoTime() - startTime));
+                    flushedCounter.increment(batch.size());
+                    log.debug("Flushed {} metrics", batch.size());
+                })
+                .onErrorResume(e -> {
+                    failedCounter.increment(batch.size());
+                    log.error("Error flushing {} metrics: {}", batch.size(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,421 @@
+package org.lite.gateway.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.lite.gateway.dto.EndpointId;
+import org.lite.gateway.dto.EndpointLatencyStats;
+import org.lite.gateway.dto.ServiceUsageAggregation;
+import org.lite.gateway.entity.ApiMetric;
+import org.lite.gateway.entity.ApiMetricRollup;
+import org.lite.gateway.enums.RollupGranularity;
+import org.lite.gateway.model.RollupTotals;
+import org.lite.gateway.model.RollupWindowTotals;
+import org.lite.gateway.util.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps per route endpoint counters, duration sums, min/max and a latency histogram for every minute, hour and day,
+ * so dashboards and summaries read a few pre-aggregated documents instead of scanning raw apiMetrics.
+ * Metrics are accumulated in memory and flushed as $inc upserts, so any number of gateways add into the same documents.
+ * Every bucket granularity is written at flush time and expires after its own retention,
+ * which is how minutes are compacted into hours and days without a separate job.
+ */
+@Service
+@Slf4j
+public class MetricsRollupService {
+
+    // Endpoints beyond max-endpoints in one flush interval are counted under this path, so odd paths can't blow up memory
+    private static final String OTHER_ENDPOINT = "(other)";
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${metrics.rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${metrics.rollup.flush-interval:10s}")
+    private Duration flushInterval;
+
+    @Value("${metrics.rollup.max-endpoints:50000}")
+    private int maxEndpoints;
+
+    @Value("${metrics.rollup.retention.minute:2d}")
+    private Duration minuteRetention;
+
+    @Value("${metrics.rollup.retention.hour:35d}")
+    private Duration hourRetention;
+
+    @Value("${metrics.rollup.retention.day:400d}")
+    private Duration dayRetention;
+
+    private final Map<RollupKey, Accumulator> accumulators = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private Disposable flushTicker;
+
+    private Counter flushedCounter;
+    private Counter failedCounter;
+    private Counter overflowCounter;
+
+    public MetricsRollupService(ReactiveMongoTemplate reactiveMongoTemplate, MeterRegistry meterRegistry) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.flushedCounter = meterRegistry.counter("gateway.metrics.rollup.flushed");
+        this.failedCounter = meterRegistry.counter("gateway.metrics.rollup.failed");
+        this.overflowCounter = meterRegistry.counter("gateway.metrics.rollup.overflow");
+        if (!enabled) {
+            return;
+        }
+        ensureIndexes().subscribe(
+                null,
+                error -> log.error("Error creating metric rollup indexes: {}", error.getMessage()));
+        this.flushTicker = Flux.interval(flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush())
+                .subscribe();
+        log.info("Metric rollups enabled, flushInterval: {}, retention minute/hour/day: {}/{}/{}",
+                flushInterval, minuteRetention, hourRetention, dayRetention);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flushTicker != null) {
+            flushTicker.dispose();
+        }
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (flushing.get() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        flush().block(Duration.ofSeconds(5));
+    }
+
+    // Never blocks, the metric is counted in memory until the next flush
+    public void record(ApiMetric metric) {
+        if (!enabled || metric.getRouteIdentifier() == null) {
+            return;
+        }
+        Instant timestamp = metric.getTimestamp() != null
+                ? metric.getTimestamp().atZone(ZoneId.systemDefault()).toInstant()
+                : Instant.now();
+        RollupKey key = new RollupKey(RollupGranularity.MINUTE.bucketStart(timestamp), metric.getRouteIdentifier(),
+                metric.getFromService(), metric.getToService(), metric.getPathEndPoint(), metric.getInteractionType());
+        if (accumulators.size() >= maxEndpoints && !accumulators.containsKey(key)) {
+            key = key.withPathEndPoint(OTHER_ENDPOINT);
+            overflowCounter.increment();
+        }
+        // add fails only if a flush drained this accumulator in the meantime, the retry gets a fresh one
+        while (!accumulators.computeIfAbsent(key, k -> new Accumulator()).add(metric.getDuration(), metric.isSuccess())) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Totals of the given routes (all routes if null) from the rollups overlapping [from, to].
+     * A null from means everything that is still retained.
+     */
+    public Mono<RollupTotals> getTotals(Collection<String> routeIdentifiers, Instant from, Instant to) {
+        TypedAggregation<ApiMetricRollup> aggregation = Aggregation.newAggregation(ApiMetricRollup.class,
+                Aggregation.match(rollupCriteria(routeIdentifiers, from, to)),
+                totalsGroup());
+        return reactiveMongoTemplate.aggregate(aggregation, RollupTotals.class)
+                .next()
+                .defaultIfEmpty(RollupTotals.EMPTY);
+    }
+
+    // Totals of the window ending now and of the one before it, both from a single $facet aggregation
+    public Mono<RollupWindowTotals> getWindowTotals(Collection<String> routeIdentifiers, Duration window, Instant now) {
+        // aligned to the rollup buckets, so no bucket is split between the two windows
+        Instant currentStart = RollupGranularity.forRange(window.multipliedBy(2)).bucketStart(now.minus(window));
+        TypedAggregation<ApiMetricRollup> aggregation = Aggregation.newAggregation(ApiMetricRollup.class,
+                Aggregation.match(rollupCriteria(routeIdentifiers, currentStart.minus(window), now)),
+                Aggregation.facet(Aggregation.match(Criteria.where("bucketStart").gte(currentStart)), totalsGroup()).as("current")
+                        .and(Aggregation.match(Criteria.where("bucketStart").lt(currentStart)), totalsGroup()).as("previous"));
+        return reactiveMongoTemplate.aggregate(aggregation, Document.class)
+                .next()
+                .map(facets -> new RollupWindowTotals(readTotals(facets, "current"), readTotals(facets, "previous")))
+                .defaultIfEmpty(new RollupWindowTotals(RollupTotals.EMPTY, RollupTotals.EMPTY));
+    }
+
+    // Request count per route identifier
+    public Flux<ServiceUsageAggregation> getRequestCounts(Collection<String> routeIdentifiers, Instant from, Instant to) {
+        TypedAggregation<ApiMetricRollup> aggregation = Aggregation.newAggregation(ApiMetricRollup.class,
+                Aggregation.match(rollupCriteria(routeIdentifiers, from, to)),
+                Aggregation.group("routeIdentifier").sum("count").as("requestCount"));
+        return reactiveMongoTemplate.aggregate(aggregation, ServiceUsageAggregation.class);
+    }
+
+    // Latency percentiles per endpoint, the histograms of all buckets in the range are merged here
+    public Flux<EndpointLatencyStats> getEndpointLatencyStats(Collection<String> routeIdentifiers, Instant from, Instant to) {
+        Query query = Query.query(rollupCriteria(routeIdentifiers, from, to));
+        query.fields().include("toService", "pathEndPoint", "interactionType", "count",
+                "durationMin", "durationMax", "latency");
+        return reactiveMongoTemplate.find(query, ApiMetricRollup.class)
+                .collect(HashMap<EndpointId, LatencyAccumulator>::new, (endpoints, rollup) -> {
+                    EndpointId endpointId = EndpointId.builder()
+                            .service(rollup.getToService() != null ? rollup.getToService() : "unknown")
+                            .path(rollup.getPathEndPoint() != null ? rollup.getPathEndPoint() : "/")
+                            .method(rollup.getInteractionType() != null ? rollup.getInteractionType() : "APP_TO_APP")
+                            .build();
+                    endpoints.computeIfAbsent(endpointId, id -> new LatencyAccumulator()).add(rollup);
+                })
+                .flatMapIterable(endpoints -> {
+                    List<EndpointLatencyStats> stats = new ArrayList<>(endpoints.size());
+                    endpoints.forEach((endpointId, latency) -> stats.add(latency.toStats(endpointId)));
+                    stats.sort(Comparator.comparing(EndpointLatencyStats::getP95).reversed());
+                    return stats;
+                });
+    }
+
+    /**
+     * Match on the rollups of the given routes (all if null) overlapping [from, to], at the granularity that suits the range.
+     * Buckets are matched by their start, so the range is widened to whole buckets.
+     */
+    public Criteria rollupCriteria(Collection<String> routeIdentifiers, Instant from, Instant to) {
+        Instant end = to != null ? to : Instant.now();
+        RollupGranularity granularity = from == null
+                ? RollupGranularity.DAY
+                : RollupGranularity.forRange(Duration.between(from, end));
+        Criteria criteria = Criteria.where("granularity").is(granularity.name());
+        if (routeIdentifiers != null) {
+            criteria = criteria.and("routeIdentifier").in(routeIdentifiers);
+        }
+        Criteria bucketStart = criteria.and("bucketStart").lte(end);
+        if (from != null) {
+            bucketStart.gte(granularity.bucketStart(from));
+        }
+        return criteria;
+    }
+
+    private static GroupOperation totalsGroup() {
+        return Aggregation.group()
+                .sum("count").as("count")
+                .sum("successCount").as("successCount")
+                .sum("durationSum").as("durationSum")
+                .min("durationMin").as("durationMin")
+                .max("durationMax").as("durationMax");
+    }
+
+    // A facet is an array holding the group's single document, empty if nothing matched
+    private RollupTotals readTotals(Document facets, String facet) {
+        List<Document> totals = facets.getList(facet, Document.class);
+        return totals == null || totals.isEmpty()
+                ? RollupTotals.EMPTY
+                : reactiveMongoTemplate.getConverter().read(RollupTotals.class, totals.get(0));
+    }
+
+    private Mono<Void> ensureIndexes() {
+        return Flux.concat(
+                reactiveMongoTemplate.indexOps(ApiMetricRollup.class).ensureIndex(new Index()
+                        .on("granularity", Sort.Direction.ASC)
+                        .on("routeIdentifier", Sort.Direction.ASC)
+                        .on("bucketStart", Sort.Direction.ASC)
+                        .named("granularity_route_bucket_idx")),
+                reactiveMongoTemplate.indexOps(ApiMetricRollup.class).ensureIndex(new Index()
+                        .on("granularity", Sort.Direction.ASC)
+                        .on("bucketStart", Sort.Direction.ASC)
+                        .named("granularity_bucket_idx")),
+                reactiveMongoTemplate.indexOps(ApiMetricRollup.class).ensureIndex(new Index()
+                        .on("expireAt", Sort.Direction.ASC)
+                        .expire(Duration.ZERO)
+                        .named("expire_at_ttl_idx")))
+                .then();
+    }
+
+    private Mono<Void> flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        Map<RollupGranularity, Map<RollupKey, Accumulator>> rollups = new EnumMap<>(RollupGranularity.class);
+        for (RollupKey key : accumulators.keySet()) {
+            // removed before it is drained, so a concurrent record() either lands in this flush or in a new accumulator
+            Accumulator accumulator = accumulators.remove(key);
+            if (accumulator == null || !accumulator.drain()) {
+                continue;
+            }
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                rollups.computeIfAbsent(granularity, g -> new HashMap<>())
+                        .computeIfAbsent(key.withBucketStart(granularity.bucketStart(key.bucketStart())), k -> new Accumulator())
+                        .merge(accumulator);
+            }
+        }
+        if (rollups.isEmpty()) {
+            flushing.set(false);
+            return Mono.empty();
+        }
+
+        ReactiveBulkOperations bulkOperations = reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ApiMetricRollup.class);
+        int upserts = 0;
+        for (Map.Entry<RollupGranularity, Map<RollupKey, Accumulator>> entry : rollups.entrySet()) {
+            RollupGranularity granularity = entry.getKey();
+            for (Map.Entry<RollupKey, Accumulator> rollup : entry.getValue().entrySet()) {
+                bulkOperations.upsert(
+                        Query.query(Criteria.where("_id").is(rollup.getKey().id(granularity))),
+                        toUpdate(granularity, rollup.getKey(), rollup.getValue()));
+                upserts++;
+            }
+        }
+        int flushedUpserts = upserts;
+        return bulkOperations.execute()
+                .doOnSuccess(result -> {
+                    flushedCounter.increment(flushedUpserts);
+                    log.debug("Flushed {} metric rollups", flushedUpserts);
+                })
+                .onErrorResume(e -> {
+                    failedCounter.increment(flushedUpserts);
+                    log.error("Error flushing {} metric rollups: {}", flushedUpserts, e.getMessage());
+                    return Mono.empty();
+                })
+                .doFinally(signal -> flushing.set(false))
+                .then();
+    }
+
+    private Update toUpdate(RollupGranularity granularity, RollupKey key, Accumulator accumulator) {
+        Update update = new Update()
+                .setOnInsert("granularity", granularity.name())
+                .setOnInsert("bucketStart", key.bucketStart())
+                .setOnInsert("routeIdentifier", key.routeIdentifier())
+                .setOnInsert("fromService", key.fromService())
+                .setOnInsert("toService", key.toService())
+                .setOnInsert("pathEndPoint", key.pathEndPoint())
+                .setOnInsert("interactionType", key.interactionType())
+                .setOnInsert("expireAt", key.bucketStart().plus(granularity.getUnit().getDuration()).plus(retention(granularity)))
+                .inc("count", accumulator.count)
+                .inc("successCount", accumulator.successCount)
+                .inc("durationSum", accumulator.durationSum)
+                .min("durationMin", accumulator.durationMin)
+                .max("durationMax", accumulator.durationMax);
+        accumulator.histogram.toBuckets().forEach((bucket, count) -> update.inc("latency." + bucket, count));
+        return update;
+    }
+
+    private Duration retention(RollupGranularity granularity) {
+        return switch (granularity) {
+            case MINUTE -> minuteRetention;
+            case HOUR -> hourRetention;
+            case DAY -> dayRetention;
+        };
+    }
+
+    private record RollupKey(Instant bucketStart, String routeIdentifier, String fromService, String toService,
+                             String pathEndPoint, String interactionType) {
+
+        RollupKey withBucketStart(Instant start) {
+            return new RollupKey(start, routeIdentifier, fromService, toService, pathEndPoint, interactionType);
+        }
+
+        RollupKey withPathEndPoint(String path) {
+            return new RollupKey(bucketStart, routeIdentifier, fromService, toService, path, interactionType);
+        }
+
+        // Deterministic, so every gateway upserts into the same document
+        String id(RollupGranularity granularity) {
+            return String.join("|", granularity.name(), String.valueOf(bucketStart.getEpochSecond()), routeIdentifier,
+                    String.valueOf(fromService), String.valueOf(toService), String.valueOf(pathEndPoint),
+                    String.valueOf(interactionType));
+        }
+    }
+
+    private static final class Accumulator {
+        private long count;
+        private long successCount;
+        private long durationSum;
+        private long durationMin = Long.MAX_VALUE;
+        private long durationMax = Long.MIN_VALUE;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private boolean drained;
+
+        synchronized boolean add(long duration, boolean success) {
+            if (drained) {
+                return false;
+            }
+            count++;
+            if (success) {
+                successCount++;
+            }
+            durationSum += duration;
+            durationMin = Math.min(durationMin, duration);
+            durationMax = Math.max(durationMax, duration);
+            histogram.record(duration);
+            return true;
+        }
+
+        // Closes the accumulator for writers, true if it holds anything
+        synchronized boolean drain() {
+            drained = true;
+            return count > 0;
+        }
+
+        // Only called by the flush on accumulators no writer can reach anymore
+        void merge(Accumulator other) {
+            count += other.count;
+            successCount += other.successCount;
+            durationSum += other.durationSum;
+            durationMin = Math.min(durationMin, other.durationMin);
+            durationMax = Math.max(durationMax, other.durationMax);
+            histogram.merge(other.histogram);
+        }
+    }
+
+    private static final class LatencyAccumulator {
+        private long count;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        void add(ApiMetricRollup rollup) {
+            count += rollup.getCount();
+            min = Math.min(min, rollup.getDurationMin());
+            max = Math.max(max, rollup.getDurationMax());
+            histogram.merge(rollup.getLatency());
+        }
+
+        EndpointLatencyStats toStats(EndpointId endpointId) {
+            return EndpointLatencyStats.builder()
+                    .id(endpointId)
+                    .min((double) min)
+                    .max((double) max)
+                    .count(count)
+                    .p50(histogram.percentile(0.50, min, max))
+                    .p75(histogram.percentile(0.75, min, max))
+                    .p90(histogram.percentile(0.90, min, max))
+                    .p95(histogram.percentile(0.95, min, max))
+                    .p99(histogram.percentile(0.99, min, max))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.lite.gateway.service;
+
+import com.mongodb.MongoException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.lite.gateway.entity.ApiMetric;
+import org.lite.gateway.entity.ApiMetricPoint;
+import org.lite.gateway.enums.MetricsStorageMode;
+import org.lite.gateway.model.MetricsCursor;
+import org.lite.gateway.model.MetricsPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes raw ApiMetric documents in the configured storage mode, either the regular apiMetrics collection
+ * or the apiMetricSeries time-series collection with the compact ApiMetricPoint schema.
+ * Creates the collection, the (routeIdentifier, timestamp) index and the retention TTL at startup,
+ * writes wait for that so the time-series collection is never created as a regular one by an early insert.
+ * The TTL is off unless metrics.storage.ttl is set, turning it off again removes the TTL from an existing collection.
+ */
+@Service
+@Slf4j
+public class MetricsStorageService {
+
+    private static final String TTL_INDEX = "timestamp_ttl_idx";
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Value("${metrics.storage.mode:DOCUMENT}")
+    private MetricsStorageMode mode;
+
+    @Value("${metrics.storage.ttl:0}")
+    private Duration ttl;
+
+    @Value("${metrics.storage.granularity:seconds}")
+    private String granularity;
+
+    private Mono<Void> ready;
+
+    public MetricsStorageService(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.ready = (mode == MetricsStorageMode.TIMESERIES ? bootstrapTimeSeries() : bootstrapDocuments())
+                .doOnSuccess(ignored -> log.info("Metrics storage ready, mode: {}, ttl: {}", mode, ttl))
+                .onErrorResume(e -> {
+                    log.error("Error preparing metrics storage in {} mode: {}", mode, e.getMessage());
+                    return Mono.empty();
+                })
+                .cache();
+        ready.subscribe();
+    }
+
+    public MetricsStorageMode getMode() {
+        return mode;
+    }
+
+    public Mono<Void> insert(List<ApiMetric> metrics) {
+        if (mode == MetricsStorageMode.TIMESERIES) {
+            List<ApiMetricPoint> points = metrics.stream().map(ApiMetricPoint::from).toList();
+            return ready.then(reactiveMongoTemplate.insert(points, ApiMetricPoint.class).then());
+        }
+        return ready.then(reactiveMongoTemplate.insert(metrics, ApiMetric.class).then());
+    }
+
+    public Mono<Void> save(ApiMetric metric) {
+        return insert(List.of(metric));
+    }
+
+    public Flux<ApiMetric> find(Query query) {
+        if (mode == MetricsStorageMode.TIMESERIES) {
+            return reactiveMongoTemplate.find(query, ApiMetricPoint.class).map(ApiMetricPoint::toApiMetric);
+        }
+        return reactiveMongoTemplate.find(query, ApiMetric.class);
+    }
+
+    /**
+     * One page of the metrics matching the filter, newest first, starting after the cursor (from the top if null).
+     * Keyset paging on (timestamp, id) uses the timestamp indexes, so every page costs the same however deep it is.
+     * Fields restricts the returned ApiMetric properties, timestamp and id are always included for the next cursor.
+     */
+    public Mono<MetricsPage> findPage(Criteria filter, MetricsCursor after, int limit, Collection<String> fields) {
+        Criteria criteria = filter;
+        if (after != null) {
+            criteria = new Criteria().andOperator(filter, new Criteria().orOperator(
+                    Criteria.where("timestamp").lt(after.timestamp()),
+                    Criteria.where("timestamp").is(after.timestamp()).and("id").lt(after.id())));
+        }
+        // one extra document tells whether there is a next page
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "timestamp", "id"))
+                .limit(limit + 1)
+                .cursorBatchSize(limit + 1);
+        if (fields != null && !fields.isEmpty()) {
+            query.fields().include("timestamp");
+            fields.forEach(field -> query.fields().include(propertyPath(field)));
+        }
+        return find(query)
+                .collectList()
+                .map(items -> {
+                    if (items.size() <= limit) {
+                        return new MetricsPage(items, null);
+                    }
+                    List<ApiMetric> page = items.subList(0, limit);
+                    ApiMetric last = page.get(limit - 1);
+                    return new MetricsPage(page, new MetricsCursor(
+                            last.getTimestamp().atZone(ZoneId.systemDefault()).toInstant(), last.getId()));
+                });
+    }
+
+    /**
+     * Every metric matching the filter, newest first, read page by page with the same keyset query.
+     * Only one page is held at a time and the next one is only read once the subscriber asked for more,
+     * and no mongodb cursor stays open across pages, so a long export doesn't hold a pooled connection.
+     */
+    public Flux<ApiMetric> stream(Criteria filter, int pageSize, Collection<String> fields) {
+        return findPage(filter, null, pageSize, fields)
+                .expand(page -> page.nextCursor() == null
+                        ? Mono.empty()
+                        : findPage(filter, page.nextCursor(), pageSize, fields))
+                .concatMapIterable(MetricsPage::items, 1);
+    }
+
+    public Mono<ApiMetric> findById(String id) {
+        if (mode == MetricsStorageMode.TIMESERIES) {
+            return reactiveMongoTemplate.findById(id, ApiMetricPoint.class).map(ApiMetricPoint::toApiMetric);
+        }
+        return reactiveMongoTemplate.findById(id, ApiMetric.class);
+    }
+
+    public Mono<Long> count() {
+        return reactiveMongoTemplate.estimatedCount(entityClass());
+    }
+
+    // Metrics in [from, to], optionally of one caller and/or target service
+    public Criteria rangeCriteria(Instant from, Instant to, String fromService, String toService) {
+        Criteria criteria = Criteria.where("timestamp").gte(from).lte(to);
+        if (fromService != null) {
+            criteria = criteria.and(metaPath("fromService")).is(fromService);
+        }
+        if (toService != null) {
+            criteria = criteria.and(metaPath("toService")).is(toService);
+        }
+        return criteria;
+    }
+
+    // Metrics that came from or went to the service
+    public Criteria serviceCriteria(String serviceName) {
+        return new Criteria().orOperator(
+                Criteria.where(metaPath("fromService")).is(serviceName),
+                Criteria.where(metaPath("toService")).is(serviceName));
+    }
+
+    /**
+     * Property path of an ApiMetric field in the current mode, route and service fields live in the meta field
+     * of the time-series schema. Queries run against the mode's entity class, so the paths are mapped to the stored names.
+     */
+    public String metaPath(String property) {
+        return mode == MetricsStorageMode.TIMESERIES ? "meta." + property : property;
+    }
+
+    // Path of an ApiMetric property in the current mode's entity, rejects anything that isn't an ApiMetric property
+    private String propertyPath(String field) {
+        return switch (field) {
+            case "routeIdentifier", "fromService", "toService", "gatewayBaseUrl" -> metaPath(field);
+            case "id", "timestamp", "duration", "interactionType", "pathEndPoint", "queryParameters",
+                 "requestPayload", "success" -> field;
+            default -> throw new IllegalArgumentException("Unknown metric field: " + field);
+        };
+    }
+
+    private Class<?> entityClass() {
+        return mode == MetricsStorageMode.TIMESERIES ? ApiMetricPoint.class : ApiMetric.class;
+    }
+
+    private Mono<Void> bootstrapDocuments() {
+        ReactiveIndexOperations indexOps = reactiveMongoTemplate.indexOps(ApiMetric.class);
+        Mono<String> routeIndex = indexOps.ensureIndex(new Index()
+                .on("routeIdentifier", Sort.Direction.ASC)
+                .on("timestamp", Sort.Direction.ASC)
+                .named("route_timestamp_idx"));
+        if (ttl.isZero()) {
+            // Without retention a plain index serves the timestamp range scans, a TTL index left from before is dropped
+            Mono<String> timestampIndex = indexOps.ensureIndex(new Index()
+                    .on("timestamp", Sort.Direction.ASC)
+                    .named("timestamp_idx"));
+            Mono<Void> dropTtlIndex = indexOps.getIndexInfo()
+                    .any(index -> TTL_INDEX.equals(index.getName()))
+                    .flatMap(exists -> exists
+                            ? indexOps.dropIndex(TTL_INDEX)
+                                    .doOnSuccess(ignored -> log.info("Dropped {}, raw metrics are kept", TTL_INDEX))
+                            : Mono.empty());
+            return routeIndex.then(timestampIndex).then(dropTtlIndex);
+        }
+        // The TTL index also serves the plain timestamp range scans
+        Mono<String> ttlIndex = indexOps.ensureIndex(new Index()
+                .on("timestamp", Sort.Direction.ASC)
+                .expire(ttl)
+                .named(TTL_INDEX))
+                // an existing TTL index with another expiry is changed in place
+                .onErrorResume(MetricsStorageService::isIndexOptionsConflict,
+                        e -> reactiveMongoTemplate.executeCommand(new Document("collMod", collectionName())
+                                .append("index", new Document("name", TTL_INDEX)
+                                        .append("expireAfterSeconds", ttl.toSeconds())))
+                        .thenReturn(TTL_INDEX));
+        return routeIndex.then(ttlIndex).then();
+    }
+
+    // The index exists with other options, anything else is a real failure
+    private static boolean isIndexOptionsConflict(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException && mongoException.getCode() == INDEX_OPTIONS_CONFLICT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<Void> bootstrapTimeSeries() {
+        String collection = collectionName();
+        Object expireAfterSeconds = ttl.isZero() ? "off" : ttl.toSeconds();
+        Mono<Document> collectionReady = reactiveMongoTemplate.collectionExists(collection)
+                .flatMap(exists -> {
+                    if (exists) {
+                        // keep the retention in line with the configuration
+                        return reactiveMongoTemplate.executeCommand(new Document("collMod", collection)
+                                .append("expireAfterSeconds", expireAfterSeconds));
+                    }
+                    Document create = new Document("create", collection)
+                            .append("timeseries", new Document("timeField", "t")
+                                    .append("metaField", "m")
+                                    .append("granularity", granularity));
+                    if (!ttl.isZero()) {
+                        create.append("expireAfterSeconds", ttl.toSeconds());
+                    }
+                    return reactiveMongoTemplate.executeCommand(create);
+                });
+        Mono<String> routeIndex = reactiveMongoTemplate.indexOps(ApiMetricPoint.class).ensureIndex(new Index()
+                .on("m.r", Sort.Direction.ASC)
+                .on("t", Sort.Direction.ASC)
+                .named("route_timestamp_idx"));
+        return collectionReady.then(routeIndex).then();
+    }
+
+    private String collectionName() {
+        return reactiveMongoTemplate.getCollectionName(entityClass());
+    }
+}
@@ -0,0 +1,29 @@
+package org.lite.gateway.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.entity.ApiRoute;
+import org.lite.gateway.entity.FilterConfig;
+import org.lite.gateway.filter.PayloadCaptureFilter;
+import org.lite.gateway.model.PayloadCaptureRecord;
+import org.springframework.cloud.gateway.route.builder.GatewayFilterSpec;
+
+@Slf4j
+public class PayloadCaptureFilterService implements FilterService{
+
+    @Override
+    public void applyFilter(GatewayFilterSpec gatewayFilterSpec, FilterConfig filter, ApiRoute apiRoute) {
+        try {
+            int maxBytes = Integer.parseInt(filter.getArgs().getOrDefault("maxBytes", "0"));
+            boolean hashPayload = Boolean.parseBoolean(filter.getArgs().getOrDefault("hashPayload", "false"));
+
+            // Capture is off unless the route asks for bytes or a hash
+            if (maxBytes <= 0 && !hashPayload) {
+                return;
+            }
+            PayloadCaptureRecord payloadCaptureRecord = new PayloadCaptureRecord(apiRoute.getRouteIdentifier(), maxBytes, hashPayload);
+            gatewayFilterSpec.filter(new PayloadCaptureFilter(payloadCaptureRecord));
+        } catch (Exception e) {
+            log.error("Error applying PayloadCapture filter for route {}: {}", apiRoute.getRouteIdentifier(), e.getMessage());
+        }
+    }
+}
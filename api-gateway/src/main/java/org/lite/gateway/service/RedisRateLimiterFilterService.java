@@ -4,13 +4,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.entity.ApiRoute;
 import org.lite.gateway.entity.FilterConfig;
+import org.lite.gateway.filter.HybridRedisRateLimiter;
 import org.lite.gateway.filter.RedisRateLimiterFilter;
+import org.lite.gateway.model.DailyQuotaRecord;
 import org.lite.gateway.model.RedisRateLimiterRecord;
 import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
 import org.springframework.cloud.gateway.route.builder.GatewayFilterSpec;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.server.ServerWebExchange;
@@ -25,13 +27,17 @@ import java.util.Objects;
 @Slf4j
 public class RedisRateLimiterFilterService implements FilterService{
 
+    private static final String DAILY_QUOTA_LIMIT_HEADER = "X-DailyQuota-Limit";
+    private static final String DAILY_QUOTA_REMAINING_HEADER = "X-DailyQuota-Remaining";
+    private static final String DAILY_QUOTA_RESET_HEADER = "X-DailyQuota-Reset";
+
     private final ApplicationContext applicationContext;
-    private final RedisTemplate<String, String> redisTemplate;
+    private final DailyQuotaService dailyQuotaService;
     private final ObjectMapper objectMapper;
 
-    public RedisRateLimiterFilterService(ApplicationContext applicationContext, RedisTemplate<String, String> redisTemplate, ObjectMapper objectMapper){
+    public RedisRateLimiterFilterService(ApplicationContext applicationContext, DailyQuotaService dailyQuotaService, ObjectMapper objectMapper){
         this.applicationContext = applicationContext;
-        this.redisTemplate = redisTemplate;
+        this.dailyQuotaService = dailyQuotaService;
         this.objectMapper = objectMapper;
     }
 
@@ -43,11 +49,23 @@ public class RedisRateLimiterFilterService implements FilterService{
             int requestedTokens = Integer.parseInt(Objects.requireNonNull(filter.getArgs().get("requestedTokens")));
 
             RedisRateLimiterRecord redisRateLimiterRecord = new RedisRateLimiterRecord(apiRoute.getRouteIdentifier(), replenishRate, burstCapacity, requestedTokens);
-            RedisRateLimiter redisRateLimiter = new RedisRateLimiter(replenishRate, burstCapacity, requestedTokens);
+            // Tokens leased per Redis call by the node-local bucket, a lease no larger than one request means Redis only
+            int localLeaseSize = Integer.parseInt(filter.getArgs().getOrDefault("localLeaseSize", String.valueOf(burstCapacity / 4)));
+            Duration localLeaseTtl = Duration.parse(filter.getArgs().getOrDefault("localLeaseTtl", "PT1S"));
+            int localMaxKeys = Integer.parseInt(filter.getArgs().getOrDefault("localMaxKeys", "10000"));
+
+            RedisRateLimiter redisRateLimiter = localLeaseSize > requestedTokens
+                    ? new HybridRedisRateLimiter(replenishRate, burstCapacity, requestedTokens, localLeaseSize, localLeaseTtl, localMaxKeys)
+                    : new RedisRateLimiter(replenishRate, burstCapacity, requestedTokens);
             redisRateLimiter.setApplicationContext(applicationContext);
 
-            // Use the daily call limit if set
-            Integer maxCallsPerDay = apiRoute.getMaxCallsPerDay();
+            // Use the daily call limits if set, per route (maxCallsPerDay) and optionally per team and per API key
+            DailyQuotaRecord dailyQuotaRecord = new DailyQuotaRecord(apiRoute.getRouteIdentifier(), apiRoute.getMaxCallsPerDay(),
+                    parseOptionalInt(filter.getArgs().get("maxCallsPerDayPerTeam")),
+                    parseOptionalInt(filter.getArgs().get("maxCallsPerDayPerApiKey")));
+            boolean hasDailyQuota = dailyQuotaRecord.maxCallsPerDay() != null
+                    || dailyQuotaRecord.maxCallsPerDayPerTeam() != null
+                    || dailyQuotaRecord.maxCallsPerDayPerApiKey() != null;
 
             gatewayFilterSpec.requestRateLimiter().configure(config -> {
                 config.setRouteId(apiRoute.getRouteIdentifier());
@@ -57,8 +75,8 @@ public class RedisRateLimiterFilterService implements FilterService{
                 config.setEmptyKeyStatus(HttpStatus.TOO_MANY_REQUESTS.name());
             })
                     .filter((exchange, chain) -> {
-                        if (maxCallsPerDay != null) {
-                            return handleDailyLimit(apiRoute, maxCallsPerDay, exchange)
+                        if (hasDailyQuota) {
+                            return handleDailyLimit(dailyQuotaRecord, exchange)
                                     .flatMap(allowed -> allowed ? chain.filter(exchange) : tooManyRequestsResponse(exchange));
                         }
                         return chain.filter(exchange);
@@ -69,17 +87,22 @@ public class RedisRateLimiterFilterService implements FilterService{
         }
     }
 
-    private Mono<Boolean> handleDailyLimit(ApiRoute apiRoute, int maxCallsPerDay, ServerWebExchange exchange) {
-        String dailyCallsKey = "dailyCalls:" + apiRoute.getPath(); // Use path or other identifier
-        return Mono.fromCallable(() -> {
-            Long currentCount = redisTemplate.opsForValue().increment(dailyCallsKey);
-            if (currentCount == null || currentCount == 1) {
-                currentCount = 1L;
-                redisTemplate.expire(dailyCallsKey, Duration.ofDays(1)); // Expire after 24 hours
-            }
-            log.debug("API route {} has made {} calls today", apiRoute.getRouteIdentifier(), currentCount);
-            return currentCount <= maxCallsPerDay;
-        });
+    private Mono<Boolean> handleDailyLimit(DailyQuotaRecord dailyQuotaRecord, ServerWebExchange exchange) {
+        return dailyQuotaService.checkAndIncrement(dailyQuotaRecord, exchange)
+                .map(result -> {
+                    if (result.limit() >= 0) {
+                        // Expose the remaining quota of the most restrictive scope
+                        HttpHeaders headers = exchange.getResponse().getHeaders();
+                        headers.set(DAILY_QUOTA_LIMIT_HEADER, String.valueOf(result.limit()));
+                        headers.set(DAILY_QUOTA_REMAINING_HEADER, String.valueOf(result.remaining()));
+                        headers.set(DAILY_QUOTA_RESET_HEADER, String.valueOf(result.resetEpochSecond()));
+                    }
+                    return result.allowed();
+                });
+    }
+
+    private Integer parseOptionalInt(String value) {
+        return value != null && !value.isBlank() ? Integer.valueOf(value.trim()) : null;
     }
 
     private Mono<Void> tooManyRequestsResponse(ServerWebExchange exchange) {
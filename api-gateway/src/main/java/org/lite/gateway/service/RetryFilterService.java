@@ -12,14 +12,18 @@ import java.time.Duration;
 @Slf4j
 public class RetryFilterService implements FilterService{
 
+    private static final String DEFAULT_MAX_REPLAYABLE_BODY_SIZE = "65536"; // 64KB
+
     @Override
     public void applyFilter(GatewayFilterSpec gatewayFilterSpec, FilterConfig filter, ApiRoute apiRoute) {
         try {
             int maxAttempts = Integer.parseInt(filter.getArgs().get("maxAttempts"));
             Duration waitDuration = Duration.parse(filter.getArgs().get("waitDuration"));
             String retryExceptions = filter.getArgs().get("retryExceptions"); // Optional
+            // Larger request bodies are sent once without retries, the body has to be held in memory to be replayed
+            int maxReplayableBodySize = Integer.parseInt(filter.getArgs().getOrDefault("maxReplayableBodySize", DEFAULT_MAX_REPLAYABLE_BODY_SIZE));
 
-            RetryRecord retryRecord = new RetryRecord(apiRoute.getRouteIdentifier(), maxAttempts, waitDuration, retryExceptions);
+            RetryRecord retryRecord = new RetryRecord(apiRoute.getRouteIdentifier(), maxAttempts, waitDuration, retryExceptions, maxReplayableBodySize);
             gatewayFilterSpec.filter(new RetryFilter(retryRecord));
         } catch (Exception e) {
             log.error("Error applying Retry filter for route {}: {}", apiRoute.getRouteIdentifier(), e.getMessage());
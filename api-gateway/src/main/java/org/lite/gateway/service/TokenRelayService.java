@@ -0,0 +1,181 @@
+package org.lite.gateway.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.client.AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the gateway's own client credentials token in memory for the token relay.
+ * The token is refreshed in the background before it expires, and only one refresh runs at a time,
+ * so concurrent requests never stampede Keycloak. In the steady state reading the header is a single volatile read.
+ */
+@Service
+@Slf4j
+public class TokenRelayService {
+
+    private final AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager authorizedClientManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spring.security.oauth2.resourceserver.opaquetoken.client-id}")
+    private String clientId;
+
+    // Should not be larger than the clock skew of the client credentials provider (60s), otherwise it returns the same token
+    @Value("${token.relay.refresh-ahead:60s}")
+    private Duration refreshAhead;
+
+    // How long to wait before trying Keycloak again after a failed refresh
+    @Value("${token.relay.retry-backoff:5s}")
+    private Duration retryBackoff;
+
+    private volatile CachedToken cachedToken;
+    private volatile long retryNotBefore;
+    private final AtomicReference<CompletableFuture<String>> inflightRefresh = new AtomicReference<>();
+
+    private Timer refreshTimer;
+    private Counter refreshFailureCounter;
+
+    public TokenRelayService(AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager authorizedClientManager,
+                             MeterRegistry meterRegistry) {
+        this.authorizedClientManager = authorizedClientManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.refreshTimer = meterRegistry.timer("gateway.token.relay.refresh");
+        this.refreshFailureCounter = meterRegistry.counter("gateway.token.relay.refresh.failures");
+        Gauge.builder("gateway.token.relay.expires.in", this, service -> service.secondsUntilExpiry())
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        // Warm up so the first requests don't wait for Keycloak
+        refresh().subscribe(
+                header -> log.info("Gateway token for {} loaded", clientId),
+                error -> log.warn("Could not load the gateway token for {} on startup: {}", clientId, error.getMessage()));
+    }
+
+    // Returns the "Bearer ..." header value if a valid token is cached, null otherwise. Never blocks or calls Keycloak inline.
+    public String getCachedAuthorizationHeader() {
+        CachedToken token = cachedToken;
+        if (token == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now < token.refreshAt()) {
+            return token.authorizationHeader();
+        }
+        if (now < token.expiresAt()) {
+            // still valid, refresh it in the background and keep serving the current one
+            if (now >= retryNotBefore) {
+                refresh();
+            }
+            return token.authorizationHeader();
+        }
+        return null;
+    }
+
+    // Cached header if there is one, otherwise joins the single refresh in flight. Empty if Keycloak gave no token.
+    public Mono<String> getAuthorizationHeader() {
+        String header = getCachedAuthorizationHeader();
+        if (header != null) {
+            return Mono.just(header);
+        }
+        if (System.currentTimeMillis() < retryNotBefore) {
+            // the last refresh failed, don't hammer Keycloak on every request
+            return Mono.empty();
+        }
+        return refresh();
+    }
+
+    // Starts a refresh unless one is already running, the returned Mono only observes it
+    private Mono<String> refresh() {
+        while (true) {
+            CompletableFuture<String> inflight = inflightRefresh.get();
+            if (inflight != null) {
+                return Mono.fromFuture(inflight, true);
+            }
+            CompletableFuture<String> future = new CompletableFuture<>();
+            if (inflightRefresh.compareAndSet(null, future)) {
+                authorize().subscribe(
+                        header -> {
+                            inflightRefresh.compareAndSet(future, null);
+                            future.complete(header);
+                        },
+                        error -> {
+                            inflightRefresh.compareAndSet(future, null);
+                            future.completeExceptionally(error);
+                        },
+                        () -> {
+                            // completes after onNext as well, in which case this is a no-op
+                            inflightRefresh.compareAndSet(future, null);
+                            future.complete(null);
+                        });
+                return Mono.fromFuture(future, true);
+            }
+        }
+    }
+
+    private Mono<String> authorize() {
+        OAuth2AuthorizeRequest authorizeRequest = OAuth2AuthorizeRequest
+                .withClientRegistrationId(clientId)
+                .principal(clientId)
+                .build();
+        long start = System.nanoTime();
+        return authorizedClientManager.authorize(authorizeRequest)
+                .mapNotNull(authorizedClient -> authorizedClient.getAccessToken())
+                .map(this::cache)
+                .doOnSuccess(header -> {
+                    refreshTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (header == null) {
+                        log.warn("Keycloak returned no access token for {}", clientId);
+                    }
+                })
+                .doOnError(error -> {
+                    refreshTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    refreshFailureCounter.increment();
+                    retryNotBefore = System.currentTimeMillis() + retryBackoff.toMillis();
+                    log.error("Error refreshing the gateway token for {}: {}", clientId, error.getMessage());
+                });
+    }
+
+    private String cache(OAuth2AccessToken accessToken) {
+        long now = System.currentTimeMillis();
+        long expiresAt = accessToken.getExpiresAt() != null ? accessToken.getExpiresAt().toEpochMilli() : Long.MAX_VALUE;
+        long refreshAt = expiresAt == Long.MAX_VALUE ? Long.MAX_VALUE : expiresAt - refreshAhead.toMillis();
+        if (refreshAt <= now) {
+            // short lived token or the provider handed back the same one, try again after the backoff
+            refreshAt = Math.min(now + retryBackoff.toMillis(), expiresAt);
+        }
+        CachedToken token = new CachedToken("Bearer " + accessToken.getTokenValue(), refreshAt, expiresAt);
+        cachedToken = token;
+        return token.authorizationHeader();
+    }
+
+    private double secondsUntilExpiry() {
+        CachedToken token = cachedToken;
+        if (token == null) {
+            return 0;
+        }
+        if (token.expiresAt() == Long.MAX_VALUE) {
+            return Double.NaN;
+        }
+        return Math.max(0, token.expiresAt() - System.currentTimeMillis()) / 1000.0;
+    }
+
+    private record CachedToken(String authorizationHeader, long refreshAt, long expiresAt) {
+    }
+}
@@ -1,15 +1,25 @@
 package org.lite.gateway.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.lite.gateway.util.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.lite.gateway.exception.InvalidAuthenticationException;
 import org.springframework.web.server.ServerWebExchange;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+
 @Service
 @Slf4j
 @RequiredArgsConstructor
@@ -17,9 +27,29 @@ public class UserContextService {
 
     public static final String SYSTEM_USER = "SYSTEM";
 
+    private static final byte[] KID_CLAIM = "\"kid\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HS256_ALG = "\"alg\":\"HS256\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUB_CLAIM = "\"sub\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REFRESH_TYP = "\"typ\":\"Refresh\"".getBytes(StandardCharsets.US_ASCII);
+
     private final ReactiveJwtDecoder userJwtDecoder;
     private final ReactiveJwtDecoder keycloakJwtDecoder;
 
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private int claimsCacheMaxSize;
+
+    // Verified claims are never kept past the token's own exp, and never longer than this
+    @Value("${jwt.claims-cache.max-ttl:5m}")
+    private Duration claimsCacheMaxTtl;
+
+    // Verified tokens keyed by the SHA-256 of the raw token, so the tokens themselves are not kept in memory
+    private BoundedTtlCache<String, VerifiedToken> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        this.verifiedTokens = new BoundedTtlCache<>(claimsCacheMaxSize);
+    }
+
     /**
      * Get current user from request headers (for controller endpoints)
      */
@@ -38,18 +68,9 @@ public class UserContextService {
                 String token = userToken.startsWith("Bearer ") ? 
                     userToken.substring(7) : userToken;
                 
-                // Try to determine if this is a Keycloak token by checking its structure
-                boolean isKeycloakToken = isKeycloakToken(token);
-                //log.debug("Token type: {}", isKeycloakToken ? "Keycloak" : "User");
-                
-                ReactiveJwtDecoder decoder = isKeycloakToken ? keycloakJwtDecoder : userJwtDecoder;
-                
-                return decoder.decode(token)
-                    .map(jwt -> {
-                        String username = isKeycloakToken ? 
-                            jwt.getClaimAsString("preferred_username") : 
-                            jwt.getClaimAsString("sub");
-                        log.debug("Decoded token claims: {}", jwt.getClaims());
+                return verifyToken(token)
+                    .map(verifiedToken -> {
+                        String username = verifiedToken.username();
                         log.debug("Username from token: {}", username);
                         if (username == null || username.trim().isEmpty()) {
                             throw new InvalidAuthenticationException("No username found in JWT token");
@@ -62,6 +83,33 @@ public class UserContextService {
                     });
             });
     }
+
+    /**
+     * Verify a user or Keycloak token, served from the verified claims cache when the same token was seen before
+     */
+    public Mono<VerifiedToken> verifyToken(String token) {
+        String tokenHash = hashToken(token);
+        VerifiedToken cached = verifiedTokens.get(tokenHash);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        // Try to determine if this is a Keycloak token by checking its structure
+        boolean isKeycloakToken = isKeycloakToken(token);
+        ReactiveJwtDecoder decoder = isKeycloakToken ? keycloakJwtDecoder : userJwtDecoder;
+
+        return decoder.decode(token)
+            .map(jwt -> {
+                log.debug("Decoded token claims: {}", jwt.getClaims());
+                VerifiedToken verifiedToken = new VerifiedToken(jwt, isKeycloakToken);
+                long maxExpiresAt = System.currentTimeMillis() + claimsCacheMaxTtl.toMillis();
+                long expiresAt = jwt.getExpiresAt() != null
+                        ? Math.min(jwt.getExpiresAt().toEpochMilli(), maxExpiresAt)
+                        : maxExpiresAt;
+                verifiedTokens.put(tokenHash, verifiedToken, expiresAt);
+                return verifiedToken;
+            });
+    }
     
     /**
      * Get current user from security context (for internal service calls)
@@ -78,17 +126,14 @@ public class UserContextService {
 
     public boolean isKeycloakToken(String token) {
         try {
-            String[] parts = token.split("\\.");
-            if (parts.length != 3) {
+            byte[] header = decodeSegment(token, 0);
+            if (header == null) {
                 return false;
             }
-            
-            // Decode the header
-            String header = new String(java.util.Base64.getDecoder().decode(parts[0]));
-            
+
             // Check for Keycloak-specific claims or structure
             // Keycloak tokens always have a kid, and can use either RS256 (access) or HS512 (refresh)
-            return header.contains("\"kid\""); // Only check for kid, don't check algorithm
+            return indexOf(header, KID_CLAIM) >= 0; // Only check for kid, don't check algorithm
         } catch (Exception e) {
             log.error("Error parsing token: {}", e.getMessage());
             return false;
@@ -97,27 +142,70 @@ public class UserContextService {
 
     public boolean isRefreshToken(String token) {
         try {
-            // Split the token into parts
-            String[] parts = token.split("\\.");
-            if (parts.length != 3) {
+            byte[] header = decodeSegment(token, 0);
+            if (header == null) {
                 return false;
             }
-            
+
+            byte[] payload = decodeSegment(token, 1);
+            if (payload == null) {
+                return false;
+            }
+
             // For standard login, check header for HS256 algorithm
-            String header = new String(java.util.Base64.getDecoder().decode(parts[0]));
-            if (header.contains("\"alg\":\"HS256\"")) {
+            if (indexOf(header, HS256_ALG) >= 0) {
                 // This is a standard login token, verify it has a subject
-                String payload = new String(java.util.Base64.getDecoder().decode(parts[1]));
-                return payload.contains("\"sub\":");
+                return indexOf(payload, SUB_CLAIM) >= 0;
             }
-            
+
             // For SSO/Keycloak tokens, check for typ:Refresh
-            String payload = new String(java.util.Base64.getDecoder().decode(parts[1]));
-            return payload.contains("\"typ\":\"Refresh\"");
-            
+            return indexOf(payload, REFRESH_TYP) >= 0;
+
         } catch (Exception e) {
             log.error("Error parsing token: {}", e.getMessage());
             return false;
         }
     }
-} 
\ No newline at end of file
+
+    // Decodes the n-th dot separated part of a three part JWT without splitting the whole token, null if it isn't one
+    private static byte[] decodeSegment(String token, int segment) {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            return null;
+        }
+        int start = segment == 0 ? 0 : firstDot + 1;
+        int end = segment == 0 ? firstDot : secondDot;
+        // JWT segments are base64url
+        return Base64.getUrlDecoder().decode(token.substring(start, end));
+    }
+
+    private static int indexOf(byte[] source, byte[] target) {
+        outer:
+        for (int i = 0; i <= source.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (source[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static String hashToken(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record VerifiedToken(Jwt jwt, boolean keycloakToken) {
+        public String username() {
+            return keycloakToken ? jwt.getClaimAsString("preferred_username") : jwt.getClaimAsString("sub");
+        }
+    }
+}
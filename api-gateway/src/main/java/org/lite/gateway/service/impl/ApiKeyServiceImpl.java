@@ -1,19 +1,29 @@
 package org.lite.gateway.service.impl;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.entity.ApiKey;
 import org.lite.gateway.repository.ApiKeyRepository;
 import org.lite.gateway.service.ApiKeyService;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.lite.gateway.util.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Objects;
+import java.util.Base64;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -22,10 +32,47 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @RequiredArgsConstructor
 public class ApiKeyServiceImpl implements ApiKeyService {
     private final ApiKeyRepository apiKeyRepository;
-    private final RedisTemplate<String, String> redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
     private final ObjectMapper objectMapper;
     private static final String API_KEY_CACHE_PREFIX = "api_key:";
     private static final Duration CACHE_DURATION = Duration.ofMinutes(5);
+    // Carries the hash of a revoked key, never the key itself
+    private static final ChannelTopic API_KEY_INVALIDATION_TOPIC = new ChannelTopic("apiKeyInvalidationTopic");
+
+    @Value("${api-key.cache.max-size:10000}")
+    private int localCacheMaxSize;
+
+    @Value("${api-key.cache.ttl:5m}")
+    private Duration localCacheTtl;
+
+    // Valid keys are reloaded in the background when they are this close to expiring from the local cache
+    @Value("${api-key.cache.refresh-ahead:1m}")
+    private Duration localCacheRefreshAhead;
+
+    // Unknown, disabled or expired keys are remembered this long so they don't reach mongodb on every request
+    @Value("${api-key.cache.negative-ttl:30s}")
+    private Duration localCacheNegativeTtl;
+
+    @Value("${api-key.cache.negative-max-size:5000}")
+    private int negativeCacheMaxSize;
+
+    // L1 in front of the redis L2, keyed by the SHA-256 of the api key
+    private BoundedTtlCache<String, CachedApiKey> localCache;
+    // Keys that didn't validate, kept apart so a flood of bad keys only evicts other bad keys, never valid ones
+    private BoundedTtlCache<String, Boolean> negativeCache;
+    private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        this.localCache = new BoundedTtlCache<>(localCacheMaxSize);
+        this.negativeCache = new BoundedTtlCache<>(negativeCacheMaxSize);
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            String keyHash = new String(message.getBody(), StandardCharsets.UTF_8);
+            localCache.remove(keyHash);
+            log.debug("API key {} invalidated in the local cache", keyHash);
+        }, API_KEY_INVALIDATION_TOPIC);
+    }
 
     @Override
     public Mono<ApiKey> createApiKey(String name, String teamId, String createdBy, Long expiresInDays) {
@@ -38,12 +85,14 @@ public class ApiKeyServiceImpl implements ApiKeyService {
                 apiKey.setTeamId(teamId);
                 apiKey.setCreatedBy(createdBy);
                 apiKey.setCreatedAt(Instant.now());
-                
+
                 if (expiresInDays != null) {
                     apiKey.setExpiresAt(Instant.now().plus(expiresInDays, ChronoUnit.DAYS));
                 }
 
-                return apiKeyRepository.save(apiKey);
+                return apiKeyRepository.save(apiKey)
+                    // drop a negative entry in case this key was probed before it existed
+                    .doOnNext(saved -> negativeCache.remove(hashApiKey(saved.getKey())));
             }));
     }
 
@@ -53,39 +102,103 @@ public class ApiKeyServiceImpl implements ApiKeyService {
 
     @Override
     public Mono<ApiKey> validateApiKey(String apiKey) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            return Mono.empty();
+        }
+        String keyHash = hashApiKey(apiKey);
+
+        // 1st step - local cache, no network hop
+        BoundedTtlCache.Entry<CachedApiKey> entry = localCache.getEntry(keyHash);
+        if (entry != null) {
+            CachedApiKey cached = entry.value();
+            if (!cached.matches(apiKey)) {
+                return Mono.empty();
+            }
+            if (System.currentTimeMillis() >= entry.expiresAtMillis() - localCacheRefreshAhead.toMillis()) {
+                refreshInBackground(apiKey, keyHash);
+            }
+            return Mono.just(cached.apiKey());
+        }
+        if (negativeCache.get(keyHash) != null) {
+            return Mono.empty();
+        }
+
+        // 2nd step - redis and then mongodb
+        return loadApiKey(apiKey, keyHash);
+    }
+
+    private Mono<ApiKey> loadApiKey(String apiKey, String keyHash) {
         String cacheKey = API_KEY_CACHE_PREFIX + apiKey;
-        
-        return Mono.fromCallable(() -> redisTemplate.opsForValue().get(cacheKey))
-            .filter(Objects::nonNull)
+
+        return reactiveStringRedisTemplate.opsForValue().get(cacheKey)
             .flatMap(cachedValue -> {
                 try {
                     ApiKey cached = objectMapper.readValue(cachedValue, ApiKey.class);
-                    if (cached.isEnabled() && (cached.getExpiresAt() == null || 
-                        cached.getExpiresAt().isAfter(Instant.now()))) {
+                    if (isUsable(cached)) {
                         return Mono.just(cached);
                     }
                     // If key is expired or disabled, remove from cache
-                    redisTemplate.delete(cacheKey);
-                    return Mono.empty();
+                    return reactiveStringRedisTemplate.delete(cacheKey).then(Mono.<ApiKey>empty());
                 } catch (Exception e) {
                     log.error("Error deserializing cached API key", e);
                     return Mono.empty();
                 }
             })
-            .switchIfEmpty(
+            .onErrorResume(e -> {
+                log.error("Error reading API key from redis, falling back to mongodb: {}", e.getMessage());
+                return Mono.empty();
+            })
+            .switchIfEmpty(Mono.defer(() ->
                 apiKeyRepository.findByKey(apiKey)
-                    .filter(key -> key.isEnabled() && 
-                        (key.getExpiresAt() == null || 
-                         key.getExpiresAt().isAfter(Instant.now())))
-                    .doOnNext(validKey -> {
+                    .filter(this::isUsable)
+                    .flatMap(validKey -> {
                         try {
                             String value = objectMapper.writeValueAsString(validKey);
-                            redisTemplate.opsForValue().set(cacheKey, value, CACHE_DURATION);
+                            return reactiveStringRedisTemplate.opsForValue().set(cacheKey, value, CACHE_DURATION)
+                                .onErrorResume(e -> {
+                                    log.error("Error caching API key", e);
+                                    return Mono.just(false);
+                                })
+                                .thenReturn(validKey);
                         } catch (Exception e) {
                             log.error("Error caching API key", e);
+                            return Mono.just(validKey);
                         }
-                    })
-            );
+                    })))
+            .doOnNext(validKey -> cacheLocally(keyHash, validKey))
+            .switchIfEmpty(Mono.fromRunnable(() -> cacheLocally(keyHash, null)));
+    }
+
+    // Reload a valid key shortly before it leaves the local cache, so the hot path never waits for redis
+    private void refreshInBackground(String apiKey, String keyHash) {
+        if (!refreshingKeys.add(keyHash)) {
+            return;
+        }
+        loadApiKey(apiKey, keyHash)
+            .doFinally(signal -> refreshingKeys.remove(keyHash))
+            .subscribe(
+                refreshed -> log.debug("API key {} refreshed in the local cache", keyHash),
+                error -> log.error("Error refreshing API key {}: {}", keyHash, error.getMessage()));
+    }
+
+    private void cacheLocally(String keyHash, ApiKey apiKey) {
+        long now = System.currentTimeMillis();
+        if (apiKey == null) {
+            localCache.remove(keyHash);
+            negativeCache.put(keyHash, Boolean.TRUE, now + localCacheNegativeTtl.toMillis());
+            return;
+        }
+        negativeCache.remove(keyHash);
+        long expiresAt = now + localCacheTtl.toMillis();
+        if (apiKey.getExpiresAt() != null) {
+            expiresAt = Math.min(expiresAt, apiKey.getExpiresAt().toEpochMilli());
+        }
+        localCache.put(keyHash, new CachedApiKey(apiKey), expiresAt);
+    }
+
+    private boolean isUsable(ApiKey apiKey) {
+        return apiKey.isEnabled() && (apiKey.getExpiresAt() == null ||
+            apiKey.getExpiresAt().isAfter(Instant.now()));
     }
 
     @Override
@@ -93,14 +206,50 @@ public class ApiKeyServiceImpl implements ApiKeyService {
         return apiKeyRepository.findById(id)
             .flatMap(apiKey -> {
                 apiKey.setEnabled(false);
-                invalidateKeyCache(apiKey.getKey());
                 return apiKeyRepository.save(apiKey);
             })
+            .flatMap(revokedKey -> invalidateKeyCache(revokedKey.getKey()))
+            .then();
+    }
+
+    @Override
+    public Mono<Void> deleteApiKey(String id) {
+        return apiKeyRepository.findById(id)
+            .flatMap(apiKey -> apiKeyRepository.deleteById(id)
+                .then(invalidateKeyCache(apiKey.getKey())));
+    }
+
+    // Method to invalidate cache when key is revoked/deleted, on this and every other gateway instance
+    public Mono<Void> invalidateKeyCache(String apiKey) {
+        String keyHash = hashApiKey(apiKey);
+        localCache.remove(keyHash);
+        negativeCache.remove(keyHash);
+        return reactiveStringRedisTemplate.delete(API_KEY_CACHE_PREFIX + apiKey)
+            .then(reactiveStringRedisTemplate.convertAndSend(API_KEY_INVALIDATION_TOPIC.getTopic(), keyHash))
+            .doOnError(e -> log.error("Error invalidating cached API key {}: {}", keyHash, e.getMessage()))
             .then();
     }
 
-    // Method to invalidate cache when key is revoked/deleted
-    public void invalidateKeyCache(String apiKey) {
-        redisTemplate.delete(API_KEY_CACHE_PREFIX + apiKey);
+    private static String hashApiKey(String apiKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CachedApiKey(ApiKey apiKey) {
+        boolean matches(String presentedKey) {
+            if (!apiKey.isEnabled()
+                    || (apiKey.getExpiresAt() != null && !apiKey.getExpiresAt().isAfter(Instant.now()))) {
+                return false;
+            }
+            // constant time, the lookup by hash alone must not decide
+            return MessageDigest.isEqual(
+                apiKey.getKey().getBytes(StandardCharsets.UTF_8),
+                presentedKey.getBytes(StandardCharsets.UTF_8));
+        }
     }
-} 
\ No newline at end of file
+}
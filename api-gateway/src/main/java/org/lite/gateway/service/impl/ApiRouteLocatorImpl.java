@@ -7,83 +7,91 @@ import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.entity.ApiMetric;
 import org.lite.gateway.entity.ApiRoute;
 import org.lite.gateway.entity.FilterConfig;
+import org.lite.gateway.filter.PayloadCapture;
+import org.lite.gateway.filter.PayloadCaptureFilter;
+import org.lite.gateway.filter.ResilienceFilterChain;
 import org.lite.gateway.service.*;
 import org.springframework.beans.BeansException;
-import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
 import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.*;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @RequiredArgsConstructor
 @Service
 @Slf4j
 public class ApiRouteLocatorImpl implements RouteLocator, ApplicationContextAware {
+    // Route metadata holding the ApiRoute path pattern, used to dispatch LINQ calls without an exchange
+    public static final String API_ROUTE_PATH_METADATA = "apiRoutePath";
+
     private final RouteLocatorBuilder routeLocatorBuilder;
     private final ApiRouteService apiRouteService;
-    private final ReactiveResilience4JCircuitBreakerFactory reactiveResilience4JCircuitBreakerFactory;
-    private final RedisTemplate<String, String> redisTemplate;
+    private final CircuitBreakerRegistryService circuitBreakerRegistryService;
+    private final DailyQuotaService dailyQuotaService;
     private final MetricService metricService;
     private final ObjectMapper objectMapper;
 
     private ApplicationContext applicationContext;
     private Map<String, FilterService> filterServiceMap;
+    private volatile Map<String, ResilienceFilterChain> resilienceFilterChains = Map.of();
 
     @PostConstruct
     public void init() {
         this.filterServiceMap = Map.of(
-                "CircuitBreaker", new CircuitBreakerFilterService(reactiveResilience4JCircuitBreakerFactory),
-                "RedisRateLimiter", new RedisRateLimiterFilterService(applicationContext, redisTemplate, objectMapper),
+                "CircuitBreaker", new CircuitBreakerFilterService(circuitBreakerRegistryService),
+                "RedisRateLimiter", new RedisRateLimiterFilterService(applicationContext, dailyQuotaService, objectMapper),
                 "TimeLimiter", new TimeLimiterFilterService(),
-                "Retry", new RetryFilterService()
+                "Retry", new RetryFilterService(),
+                "PayloadCapture", new PayloadCaptureFilterService()
         );
     }
 
     @Override
     public Flux<Route> getRoutes() {
         RouteLocatorBuilder.Builder routesBuilder = routeLocatorBuilder.routes();
+        Map<String, ResilienceFilterChain> compiledChains = new ConcurrentHashMap<>();
         return apiRouteService.getAllRoutes(null)
                 .map(apiRoute -> routesBuilder.route(String.valueOf(apiRoute.getRouteIdentifier()),
-                        predicateSpec -> setPredicateSpec(apiRoute, predicateSpec)))
+                        predicateSpec -> setPredicateSpec(apiRoute, predicateSpec, compiledChains)))
                 .collectList()
+                .doOnNext(builders -> {
+                    // Swap the whole set of compiled chains at once, the routes built above capture their own chain
+                    this.resilienceFilterChains = Map.copyOf(compiledChains);
+                    circuitBreakerRegistryService.retainRoutes(compiledChains.keySet());
+                    log.debug("Compiled resilience filter chains for {} routes", compiledChains.size());
+                })
                 .flatMapMany(builders -> routesBuilder.build()
                         .getRoutes());
     }
 
-    private Buildable<Route> setPredicateSpec(ApiRoute apiRoute, PredicateSpec predicateSpec) {
+    public Map<String, ResilienceFilterChain> getResilienceFilterChains() {
+        return resilienceFilterChains;
+    }
+
+    private Buildable<Route> setPredicateSpec(ApiRoute apiRoute, PredicateSpec predicateSpec, Map<String, ResilienceFilterChain> compiledChains) {
         BooleanSpec booleanSpec = predicateSpec.path(apiRoute.getPath());
 
         if (StringUtils.hasLength(apiRoute.getMethod())) {
             booleanSpec.and().method(apiRoute.getMethod());
         }
 
-        // Add filter to check actual request path before applying resilience filters
-        booleanSpec.filters(f -> f.filter((exchange, chain) -> {
-            String pathEndpoint = exchange.getRequest().getURI().getPath();
-            
-            // Skip resilience filters for health check endpoints
-            if (pathEndpoint.endsWith("/health") || pathEndpoint.endsWith("/health/")) {
-                return chain.filter(exchange);
-            }
-            
-            // Apply resilience filters for non-health endpoints
-            applyFilters(booleanSpec, apiRoute);
-            return chain.filter(exchange);
-        }));
+        // Compile the resilience filters once per route load/refresh, health check endpoints are skipped inside the chain
+        ResilienceFilterChain resilienceFilterChain = compileFilters(apiRoute);
+        compiledChains.put(apiRoute.getRouteIdentifier(), resilienceFilterChain);
+        booleanSpec.filters(f -> f.filter(resilienceFilterChain));
 
         // Add a custom filter to capture metrics only for real requests
         booleanSpec.filters(f -> f.filter((exchange, chain) -> {
@@ -96,6 +104,7 @@ public class ApiRouteLocatorImpl implements RouteLocator, ApplicationContextAwar
                     }));
         }));
 
+        booleanSpec.metadata(API_ROUTE_PATH_METADATA, apiRoute.getPath());
         return booleanSpec.uri(apiRoute.getUri());
     }
 
@@ -139,18 +148,15 @@ public class ApiRouteLocatorImpl implements RouteLocator, ApplicationContextAwar
             metric.setQueryParameters(queryParameters != null ? queryParameters : "");
         }
 
-        // Save metrics
-        if ("POST".equalsIgnoreCase(exchange.getRequest().getMethod().name())) {
-            exchange.getRequest().getBody().collectList().flatMap(dataBuffers -> {
-                StringBuilder bodyBuilder = new StringBuilder();
-                dataBuffers.forEach(buffer -> bodyBuilder.append(StandardCharsets.UTF_8.decode(buffer.toByteBuffer())));
-                metric.setRequestPayload(bodyBuilder.toString());
-                return metricService.saveMetric(metric);
-            }).subscribe();
-        } else {
-            metricService.saveMetric(metric).subscribe();
+        // Set requestPayload from the bounded capture, only present when the route opted in with a PayloadCapture filter
+        PayloadCapture payloadCapture = exchange.getAttribute(PayloadCaptureFilter.PAYLOAD_CAPTURE_ATTR);
+        if (payloadCapture != null) {
+            metric.setRequestPayload(payloadCapture.toPayload());
         }
 
+        // Save metrics
+        metricService.saveMetric(metric).subscribe();
+
         // Log metrics
         log.debug("Captured Metrics - InteractionType: {}, From: {}, To: {}, Base URL: {}, Path: {}, Duration: {}ms, Success: {}",
                 metric.getInteractionType(), metric.getFromService(), metric.getToService(),
@@ -184,26 +190,27 @@ public class ApiRouteLocatorImpl implements RouteLocator, ApplicationContextAwar
     }
 
 
-    private void applyFilters(BooleanSpec booleanSpec, ApiRoute apiRoute) {
+    private ResilienceFilterChain compileFilters(ApiRoute apiRoute) {
+        // Collect the filters into a scratch route builder instead of the live route spec
+        Route.AsyncBuilder scratchRoute = Route.async().id(apiRoute.getRouteIdentifier());
+        GatewayFilterSpec gatewayFilterSpec = new GatewayFilterSpec(scratchRoute, routeLocatorBuilder.routes());
         List<FilterConfig> filters = apiRoute.getFilters();
         if (filters != null && !filters.isEmpty()) {
-            booleanSpec.filters(gatewayFilterSpec -> {
-                for (FilterConfig filter : filters) {
-                    String filterName = filter.getName();
-                    FilterService filterService = filterServiceMap.get(filterName);
-                    if (filterService != null) {
-                        try {
-                            filterService.applyFilter(gatewayFilterSpec, filter, apiRoute);
-                        } catch (Exception e) {
-                            log.error("Error applying filter {} for route {}: {}", filterName, apiRoute.getRouteIdentifier(), e.getMessage());
-                        }
-                    } else {
-                        log.warn("No filter service found for filter: {}", filterName);
+            for (FilterConfig filter : filters) {
+                String filterName = filter.getName();
+                FilterService filterService = filterServiceMap.get(filterName);
+                if (filterService != null) {
+                    try {
+                        filterService.applyFilter(gatewayFilterSpec, filter, apiRoute);
+                    } catch (Exception e) {
+                        log.error("Error applying filter {} for route {}: {}", filterName, apiRoute.getRouteIdentifier(), e.getMessage());
                     }
+                } else {
+                    log.warn("No filter service found for filter: {}", filterName);
                 }
-                return gatewayFilterSpec;
-            });
+            }
         }
+        return new ResilienceFilterChain(apiRoute.getRouteIdentifier(), scratchRoute.getFilters());
     }
 
     @Override
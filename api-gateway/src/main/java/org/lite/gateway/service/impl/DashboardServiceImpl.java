@@ -11,56 +11,134 @@ import org.lite.gateway.entity.ApiRoute;
 import org.lite.gateway.dto.ServiceUsageStats;
 import org.lite.gateway.service.DashboardService;
 import org.lite.gateway.repository.ApiRouteRepository;
-import org.lite.gateway.repository.ApiMetricRepository;
 import org.lite.gateway.entity.TeamRoute;
+import org.lite.gateway.model.RollupTotals;
+import org.lite.gateway.model.RollupWindowTotals;
 import org.lite.gateway.repository.TeamRouteRepository;
+import org.lite.gateway.service.MetricsRollupService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DashboardServiceImpl implements DashboardService {
+    private static final Duration STATS_WINDOW = Duration.ofHours(1);
+
     private final ApiRouteRepository apiRouteRepository;
-    private final ApiMetricRepository apiMetricRepository;
     private final TeamRouteRepository teamRouteRepository;
+    private final MetricsRollupService metricsRollupService;
+
+    @Value("${dashboard.stats.ttl:5s}")
+    private Duration statsTtl;
+
+    @Value("${dashboard.stats.active-window:30s}")
+    private Duration statsActiveWindow;
+
+    // Per team stats, shared by every viewer of the team's dashboard
+    private final Map<String, TeamStats> teamStats = new ConcurrentHashMap<>();
+    private Disposable statsRefresher;
+
+    @PostConstruct
+    public void startStatsRefresher() {
+        // Teams that were polled recently are refreshed every ttl, so their viewers are served from memory
+        this.statsRefresher = Flux.interval(statsTtl)
+            .onBackpressureDrop()
+            .subscribe(tick -> refreshActiveTeams());
+    }
+
+    @PreDestroy
+    public void stopStatsRefresher() {
+        if (statsRefresher != null) {
+            statsRefresher.dispose();
+        }
+    }
     
     @Override
     public Flux<StatDTO> getDashboardStats(String teamId) {
-        Instant cutoff = Instant.now().minus(Duration.ofHours(1));
-        
+        TeamStats stats = teamStats.computeIfAbsent(teamId, TeamStats::new);
+        stats.lastRequested = System.nanoTime();
+        List<StatDTO> cached = stats.stats;
+        if (cached != null && System.nanoTime() - stats.computedAt < statsTtl.toNanos()) {
+            return Flux.fromIterable(cached);
+        }
+        return refresh(stats).flatMapMany(Flux::fromIterable);
+    }
+
+    private void refreshActiveTeams() {
+        long activeSince = System.nanoTime() - statsActiveWindow.toNanos();
+        teamStats.values().removeIf(stats -> stats.lastRequested - activeSince < 0);
+        teamStats.values().forEach(stats -> refresh(stats).subscribe(
+            null,
+            error -> log.error("Error refreshing dashboard stats of team {}: {}", stats.teamId, error.getMessage())));
+    }
+
+    // Concurrent callers share the computation that is already running for the team
+    private Mono<List<StatDTO>> refresh(TeamStats stats) {
+        Mono<List<StatDTO>> inFlight = stats.inFlight.get();
+        if (inFlight != null) {
+            return inFlight;
+        }
+        Mono<List<StatDTO>> computation = computeDashboardStats(stats.teamId)
+            .doOnNext(result -> {
+                stats.stats = result;
+                stats.computedAt = System.nanoTime();
+            })
+            .doFinally(signal -> stats.inFlight.set(null))
+            .cache();
+        if (!stats.inFlight.compareAndSet(null, computation)) {
+            // another caller started one in the meantime
+            Mono<List<StatDTO>> winner = stats.inFlight.get();
+            return winner != null ? winner : computation;
+        }
+        return computation;
+    }
+
+    private Mono<List<StatDTO>> computeDashboardStats(String teamId) {
+        Instant now = Instant.now();
+
         return teamRouteRepository.findByTeamId(teamId)
             .map(TeamRoute::getRouteId)
             .collectList()
-            .flatMapMany(routeIds -> Flux.merge(
-                getActiveRoutesCount(routeIds),
-                getAverageResponseTime(routeIds, cutoff),
-                getRequestsPerMinute(routeIds, cutoff),
-                getSuccessRate(routeIds, cutoff)
-            ).doOnError(error -> {
+            .flatMap(routeIds -> apiRouteRepository.findAllById(routeIds)
+                .map(ApiRoute::getRouteIdentifier)
+                .collectList())
+            // The routes found are the active ones, and one $facet over the minute rollups feeds all metric stats
+            .flatMap(routeIdentifiers -> metricsRollupService.getWindowTotals(routeIdentifiers, STATS_WINDOW, now)
+                .map(totals -> List.of(
+                    getActiveRoutesCount(routeIdentifiers.size()),
+                    getAverageResponseTime(totals),
+                    getRequestsPerMinute(totals),
+                    getSuccessRate(totals))))
+            .doOnError(error -> {
                 log.error("Error getting dashboard stats: ", error);
-            }));
+            });
     }
 
     @Override
     public Flux<EndpointLatencyStats> getLatencyStats(String teamId, String timeRange) {
         Duration duration = parseDuration(timeRange);
-        Instant cutoff = Instant.now().minus(duration);
+        Instant now = Instant.now();
 
         return teamRouteRepository.findByTeamId(teamId)
             .flatMap(teamRoute -> apiRouteRepository.findById(teamRoute.getRouteId())
                 .map(ApiRoute::getRouteIdentifier))
             .collectList()
-            .flatMap(routeIdentifiers -> checkMetricsExist(routeIdentifiers, cutoff)
-                .thenReturn(routeIdentifiers))
             .flatMapMany(routeIdentifiers ->
-                apiMetricRepository.getEndpointLatencyStats(routeIdentifiers, cutoff));
+                metricsRollupService.getEndpointLatencyStats(routeIdentifiers, now.minus(duration), now));
     }
 
     @Override
@@ -80,8 +158,8 @@ public class DashboardServiceImpl implements DashboardService {
                     .map(ApiRoute::getRouteIdentifier)
                     .collect(Collectors.toList());
 
-                // Get metrics aggregation and combine with all services
-                return apiMetricRepository.getServiceUsageStats(routeIdentifiers)
+                // Get request counts from the day rollups and combine with all services
+                return metricsRollupService.getRequestCounts(routeIdentifiers, null, null)
                     .collectList()
                     .flatMapMany(metrics -> {
                         Map<String, Long> metricCounts = metrics.stream()
@@ -117,66 +195,82 @@ public class DashboardServiceImpl implements DashboardService {
         };
     }
 
-    private Mono<StatDTO> getActiveRoutesCount(List<String> routeIds) {
-        return apiRouteRepository.countByIdIn(routeIds)
-            .map(count -> StatDTO.builder()
-                .title("Active Routes")
-                .value(String.valueOf(count))
-                .type("count")
-                .trend(StatTrendDTO.builder()
-                    .percentChange(0.0)
-                    .period("from last week")
-                    .build())
-                .build());
-    }
-
-    private Mono<StatDTO> getAverageResponseTime(List<String> routeIds, Instant cutoff) {
-        return apiMetricRepository.getAverageResponseTime(routeIds, cutoff)
-            .defaultIfEmpty(0.0)
-            .map(avgTime -> StatDTO.builder()
-                .title("Avg Response Time")
-                .value(String.format("%.0f", avgTime))
-                .type("time")
-                .trend(StatTrendDTO.builder()
-                    .percentChange(0.0)
-                    .period("from last hour")
-                    .build())
-                .build());
-    }
-
-    private Mono<StatDTO> getRequestsPerMinute(List<String> routeIds, Instant cutoff) {
-        return apiMetricRepository.getRequestsPerMinute(routeIds, cutoff)
-            .defaultIfEmpty(0.0)
-            .map(rate -> StatDTO.builder()
-                .title("Requests/min")
-                .value(String.format("%.0f", rate))
-                .type("rate")
-                .trend(StatTrendDTO.builder()
-                    .percentChange(0.0)
-                    .period("from last minute")
-                    .build())
-                .build());
-    }
-
-    private Mono<StatDTO> getSuccessRate(List<String> routeIds, Instant cutoff) {
-        return apiMetricRepository.getSuccessRate(routeIds, cutoff)
-            .defaultIfEmpty(1.0)
-            .map(rate -> StatDTO.builder()
-                .title("Success Rate")
-                .value(String.format("%.1f", rate * 100))
-                .type("percentage")
-                .trend(StatTrendDTO.builder()
-                    .percentChange(0.0)
-                    .period("from last 5 minutes")
-                    .build())
-                .build());
-    }
-
-    private Mono<Long> checkMetricsExist(List<String> routeIdentifiers, Instant cutoff) {
-        return apiMetricRepository.countMetrics(routeIdentifiers, cutoff)
-            .doOnNext(count -> {
-                log.info("Found {} metrics for route identifiers {} since {}", 
-                    count, routeIdentifiers, cutoff);
-            });
+    private StatDTO getActiveRoutesCount(long count) {
+        return StatDTO.builder()
+            .title("Active Routes")
+            .value(String.valueOf(count))
+            .type("count")
+            .trend(StatTrendDTO.builder()
+                .percentChange(0.0)
+                .period("from last week")
+                .build())
+            .build();
+    }
+
+    private StatDTO getAverageResponseTime(RollupWindowTotals totals) {
+        return StatDTO.builder()
+            .title("Avg Response Time")
+            .value(String.format("%.0f", totals.current().averageDuration()))
+            .type("time")
+            .trend(StatTrendDTO.builder()
+                .percentChange(percentChange(totals, RollupTotals::averageDuration))
+                .period("from previous hour")
+                .build())
+            .build();
+    }
+
+    private StatDTO getRequestsPerMinute(RollupWindowTotals totals) {
+        double minutes = STATS_WINDOW.toMinutes();
+        return StatDTO.builder()
+            .title("Requests/min")
+            .value(String.format("%.0f", totals.current().count() / minutes))
+            .type("rate")
+            .trend(StatTrendDTO.builder()
+                .percentChange(percentChange(totals.current().count() / minutes, totals.previous().count() / minutes))
+                .period("from previous hour")
+                .build())
+            .build();
+    }
+
+    private StatDTO getSuccessRate(RollupWindowTotals totals) {
+        return StatDTO.builder()
+            .title("Success Rate")
+            .value(String.format("%.1f", totals.current().successRate() * 100))
+            .type("percentage")
+            .trend(StatTrendDTO.builder()
+                .percentChange(percentChange(totals, RollupTotals::successRate))
+                .period("from previous hour")
+                .build())
+            .build();
+    }
+
+    // Change of a per request figure, 0 unless both windows had requests, an empty window has no average or success rate
+    private double percentChange(RollupWindowTotals totals, ToDoubleFunction<RollupTotals> figure) {
+        if (totals.current().count() == 0 || totals.previous().count() == 0) {
+            return 0.0;
+        }
+        return percentChange(figure.applyAsDouble(totals.current()), figure.applyAsDouble(totals.previous()));
+    }
+
+    // Rounded to one decimal, 0 when there is nothing to compare with
+    private double percentChange(double current, double previous) {
+        if (previous == 0.0) {
+            return 0.0;
+        }
+        return Math.round((current - previous) / previous * 1000) / 10.0;
+    }
+
+    private static final class TeamStats {
+        private final String teamId;
+        private final AtomicReference<Mono<List<StatDTO>>> inFlight = new AtomicReference<>();
+        private volatile List<StatDTO> stats;
+        private volatile long computedAt;
+        private volatile long lastRequested;
+
+        // Requested as of creation, so the refresher can't drop it before the first caller marks it
+        private TeamStats(String teamId) {
+            this.teamId = teamId;
+            this.lastRequested = System.nanoTime();
+        }
     }
-} 
\ No newline at end of file
+}
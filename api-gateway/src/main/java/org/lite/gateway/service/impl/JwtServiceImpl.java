@@ -3,9 +3,11 @@ package org.lite.gateway.service.impl;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.lite.gateway.entity.User;
@@ -34,8 +36,20 @@ public class JwtServiceImpl implements JwtService {
     private final UserRepository userRepository;
     private final UserContextService userContextService;
 
+    // Derived once from jwt.secret, both are immutable and thread safe
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secretKey.getBytes());
+        return signingKey;
     }
 
     @Override
@@ -74,10 +88,7 @@ public class JwtServiceImpl implements JwtService {
             }
 
             // For standard tokens, validate using our secret
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
+            jwtParser.parseClaimsJws(token);
             return true;
         } catch (Exception e) {
             log.error("Token validation failed: {}", e.getMessage());
@@ -87,10 +98,7 @@ public class JwtServiceImpl implements JwtService {
 
     @Override
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
+        Claims claims = jwtParser.parseClaimsJws(token)
                 .getBody();
 
         return claims.getSubject();
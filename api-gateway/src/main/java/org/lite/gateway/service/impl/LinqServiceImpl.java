@@ -1,19 +1,25 @@
 package org.lite.gateway.service.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.lite.gateway.dto.LinqBatchResult;
 import org.lite.gateway.dto.LinqRequest;
 import org.lite.gateway.dto.LinqResponse;
 import org.lite.gateway.entity.RoutePermission;
+import org.lite.gateway.service.LinqCacheService;
+import org.lite.gateway.service.LinqRouteDispatcher;
 import org.lite.gateway.service.LinqService;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -23,8 +29,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.NonNull;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,7 +46,7 @@ public class LinqServiceImpl implements LinqService {
     private final WebClient.Builder webClientBuilder;
 
     @NonNull
-    private final RedisTemplate<String, String> redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
 
     @NonNull
     private final ObjectMapper objectMapper;
@@ -47,6 +57,12 @@ public class LinqServiceImpl implements LinqService {
     @NonNull
     private final TeamRouteRepository teamRouteRepository;
 
+    @NonNull
+    private final LinqCacheService linqCacheService;
+
+    @NonNull
+    private final LinqRouteDispatcher linqRouteDispatcher;
+
     @Value("${spring.server.host:localhost}")
     private String gatewayHost;
 
@@ -56,81 +72,153 @@ public class LinqServiceImpl implements LinqService {
     @Value("${spring.server.ssl.enabled:true}")
     private boolean sslEnabled;
 
+    // Dispatch LINQ calls in-process to the target route instead of an HTTPS call back to the gateway
+    @Value("${linq.dispatch.direct:false}")
+    private boolean directDispatch;
+
+    @Value("${linq.batch.max-size:100}")
+    private int batchMaxSize;
+
+    // How many requests of one batch run at the same time
+    @Value("${linq.batch.parallelism:8}")
+    private int batchParallelism;
+
+    @Value("${linq.batch.item-timeout:10s}")
+    private Duration batchItemTimeout;
+
+    // Shared client for the loopback calls, built once instead of per call
+    private WebClient webClient;
+
+    @PostConstruct
+    public void init() {
+        this.webClient = webClientBuilder.build();
+    }
+
     @Override
     public Mono<LinqResponse> processLinqRequest(LinqRequest request) {
         return validateRoutePermission(request)
-            .then(Mono.defer(() -> {
-                if (request.getQuery() == null || request.getQuery().getIntent().isEmpty()) {
-                    return Mono.error(new IllegalArgumentException("Invalid LINQ request"));
-                }
+            .then(Mono.defer(() -> executePermittedRequest(request)));
+    }
+
+    @Override
+    public Flux<LinqBatchResult> processLinqBatch(List<LinqRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Empty LINQ batch"));
+        }
+        if (requests.size() > batchMaxSize) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "LINQ batch of " + requests.size() + " requests exceeds the limit of " + batchMaxSize));
+        }
+
+        // Check the USE permission of every distinct target in one pass before anything runs
+        Set<String> targets = requests.stream()
+            .filter(request -> request != null && request.getLink() != null && request.getLink().getTarget() != null)
+            .map(request -> request.getLink().getTarget())
+            .collect(Collectors.toSet());
+
+        return getTeamFromContext()
+            .flatMap(teamId -> getUsePermissions(teamId, targets))
+            .map(permissions -> (Predicate<String>) target -> permissions.getOrDefault(target, false))
+            .defaultIfEmpty(target -> true)
+            .flatMapMany(isPermitted -> Flux.range(0, requests.size())
+                // runs up to batchParallelism requests at once but emits the results in request order
+                .flatMapSequential(index -> processBatchItem(index, requests.get(index), isPermitted), batchParallelism));
+    }
+
+    private Mono<LinqBatchResult> processBatchItem(int index, LinqRequest request, Predicate<String> isPermitted) {
+        if (request == null || request.getLink() == null || request.getLink().getTarget() == null) {
+            return Mono.just(batchError(index, "Invalid LINQ request"));
+        }
+        String target = request.getLink().getTarget();
+        if (!isPermitted.test(target)) {
+            return Mono.just(batchError(index, "Team does not have USE permission for " + target));
+        }
+        return executePermittedRequest(request)
+            .timeout(batchItemTimeout)
+            .map(response -> LinqBatchResult.builder()
+                .index(index)
+                .status(response.getMetadata() != null ? response.getMetadata().getStatus() : "success")
+                .response(response)
+                .build())
+            .onErrorResume(TimeoutException.class, e -> Mono.just(batchError(index,
+                "LINQ request to " + target + " timed out after " + batchItemTimeout.toMillis() + "ms")))
+            .onErrorResume(e -> Mono.just(batchError(index, e.getMessage())))
+            .defaultIfEmpty(batchError(index, "No response from " + target));
+    }
 
-                String cacheKey = generateCacheKey(request);
-
-                return Mono.fromCallable(() -> redisTemplate.opsForValue().get(cacheKey))
-                        .filter(Objects::nonNull)
-                        .map(value -> {
-                            try {
-                                return objectMapper.readValue(value, LinqResponse.class);
-                            } catch (Exception e) {
-                                throw new RuntimeException("Failed to deserialize cached LinqResponse", e);
-                            }
-                        })
-                        .map(response -> {
-                            response.getMetadata().setCacheHit(true);
-                            return response;
-                        })
-                        .switchIfEmpty(
-                                executeLinqRequest(request)
-                                        .doOnNext(response -> {
-                                            try {
-                                                String jsonResponse = objectMapper.writeValueAsString(response);
-                                                redisTemplate.opsForValue().set(cacheKey, jsonResponse, Duration.ofMinutes(5));
-                                            } catch (Exception e) {
-                                                throw new RuntimeException("Failed to serialize LinqResponse for cache", e);
-                                            }
-                                        })
-                        );
-            }));
+    private LinqBatchResult batchError(int index, String error) {
+        return LinqBatchResult.builder()
+            .index(index)
+            .status("error")
+            .error(error)
+            .build();
+    }
+
+    private Mono<LinqResponse> executePermittedRequest(LinqRequest request) {
+        if (request.getQuery() == null || request.getQuery().getIntent().isEmpty()) {
+            return Mono.error(new IllegalArgumentException("Invalid LINQ request"));
+        }
+
+        return getTeamFromContext()
+                .defaultIfEmpty("")
+                .flatMap(teamId -> linqCacheService.getOrExecute(request, teamId,
+                        Mono.defer(() -> executeLinqRequest(request))));
     }
 
     private Mono<Void> validateRoutePermission(LinqRequest request) {
         String routeIdentifier = request.getLink().getTarget();
         
         return getTeamFromContext()
-            .flatMap(teamId -> {
-                String permissionCacheKey = String.format("permission:%s:%s", teamId, routeIdentifier);
-                
-                return Mono.fromCallable(() -> redisTemplate.opsForValue().get(permissionCacheKey))
-                    .filter(Objects::nonNull)
-                    .switchIfEmpty(checkAndCachePermission(routeIdentifier, permissionCacheKey, teamId))
-                    .filter(Boolean::parseBoolean)
-                    .switchIfEmpty(Mono.error(new ResponseStatusException(
-                        HttpStatus.FORBIDDEN, 
-                        "Team does not have USE permission for " + routeIdentifier)))
-                    .then();
-            });
+            .flatMap(teamId -> getUsePermissions(teamId, Set.of(routeIdentifier))
+                .filter(permissions -> permissions.getOrDefault(routeIdentifier, false))
+                .switchIfEmpty(Mono.error(new ResponseStatusException(
+                    HttpStatus.FORBIDDEN, 
+                    "Team does not have USE permission for " + routeIdentifier))))
+            .then();
+    }
+
+    // USE permission of the team per target, cached permissions come from a single redis round trip
+    private Mono<Map<String, Boolean>> getUsePermissions(String teamId, Set<String> routeIdentifiers) {
+        if (routeIdentifiers.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        List<String> targets = List.copyOf(routeIdentifiers);
+        List<String> cacheKeys = targets.stream()
+            .map(target -> String.format("permission:%s:%s", teamId, target))
+            .toList();
+
+        return reactiveStringRedisTemplate.opsForValue().multiGet(cacheKeys)
+            .onErrorResume(e -> {
+                log.error("Error reading route permissions from redis: {}", e.getMessage());
+                return Mono.just(Collections.<String>nCopies(cacheKeys.size(), null));
+            })
+            .flatMapMany(cached -> Flux.range(0, targets.size())
+                .flatMap(i -> {
+                    String cachedPermission = i < cached.size() ? cached.get(i) : null;
+                    Mono<String> permission = cachedPermission != null
+                        ? Mono.just(cachedPermission)
+                        : checkAndCachePermission(targets.get(i), cacheKeys.get(i), teamId);
+                    return permission.map(value -> Map.entry(targets.get(i), Boolean.parseBoolean(value)));
+                }))
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue);
     }
 
     private Mono<String> checkAndCachePermission(String routeIdentifier, String cacheKey, String teamId) {
         return apiRouteRepository.findByRouteIdentifier(routeIdentifier)
             .flatMap(apiRoute -> 
                 teamRouteRepository.findByTeamIdAndRouteId(teamId, apiRoute.getId())
-                    .map(teamRoute -> {
-                        boolean hasUsePermission = 
-                            teamRoute.getPermissions().contains(RoutePermission.USE);
-                        redisTemplate.opsForValue().set(cacheKey, 
-                            String.valueOf(hasUsePermission), 
-                            Duration.ofMinutes(5));
-                        return String.valueOf(hasUsePermission);
+                    .flatMap(teamRoute -> {
+                        String hasUsePermission = String.valueOf(
+                            teamRoute.getPermissions().contains(RoutePermission.USE));
+                        return reactiveStringRedisTemplate.opsForValue()
+                            .set(cacheKey, hasUsePermission, Duration.ofMinutes(5))
+                            .onErrorResume(e -> Mono.just(false))
+                            .thenReturn(hasUsePermission);
                     })
             )
             .switchIfEmpty(Mono.just("false"));
     }
 
-    private String generateCacheKey(LinqRequest request) {
-        return "linq:" + request.getQuery().hashCode();
-    }
-
     private Mono<LinqResponse> executeLinqRequest(LinqRequest request) {
         String target = request.getLink().getTarget();
         String intent = request.getQuery().getIntent();
@@ -144,15 +232,18 @@ public class LinqServiceImpl implements LinqService {
             default -> throw new IllegalArgumentException("Unsupported action: " + action);
         };
 
-        return invokeService(method, url, request)
-            .flatMap(result -> 
+        return invokeService(method, target, intent, url, request)
+            .map(result -> Map.<String, Object>entry("success", result))
+            .doOnError(error -> log.error("Error calling service {}: {}", url, error.getMessage()))
+            .onErrorResume(error -> Mono.just(Map.<String, Object>entry("error", Map.of("error", String.valueOf(error.getMessage())))))
+            .flatMap(outcome -> 
                 getTeamFromContext()
                     .map(team -> {
                         LinqResponse response = new LinqResponse();
-                        response.setResult(result);
+                        response.setResult(outcome.getValue());
                         LinqResponse.Metadata metadata = new LinqResponse.Metadata();
                         metadata.setSource(target);
-                        metadata.setStatus("success");
+                        metadata.setStatus(outcome.getKey());
                         metadata.setTeam(team);
                         metadata.setCacheHit(false);
                         response.setMetadata(metadata);
@@ -174,37 +265,42 @@ public class LinqServiceImpl implements LinqService {
         return url;
     }
 
-    private Mono<Object> invokeService(String method, String url, LinqRequest request) {
+    private Mono<Object> invokeService(String method, String target, String intent, String url, LinqRequest request) {
         return getApiKeyFromContext()
             .flatMap(apiKey -> {
-                log.debug("Making {} request to {} with API key present", method, url);
-                
-                WebClient webClient = webClientBuilder.build();
-                WebClient.RequestHeadersSpec<?> requestSpec = switch (method) {
-                    case "GET" -> webClient.get().uri(url);
-                    case "POST" -> webClient.post().uri(url)
-                            .bodyValue(request.getQuery().getParams());
-                    case "PUT" -> webClient.put().uri(url)
-                            .bodyValue(request.getQuery().getParams());
-                    case "DELETE" -> webClient.delete().uri(url);
-                    default -> throw new IllegalArgumentException("Method not supported: " + method);
-                };
-
-                return requestSpec
-                    .header("X-API-Key", apiKey)
-                    .exchangeToMono(response -> {
-                        if (response.statusCode().is2xxSuccessful()) {
-                            return response.bodyToMono(Object.class)
-                                .switchIfEmpty(Mono.just(Map.of("message", "Success but no content")));
-                        } else {
-                            return response.bodyToMono(String.class)
-                                .flatMap(error -> Mono.error(new RuntimeException(
-                                    "Service returned " + response.statusCode() + ": " + error)));
-                        }
-                    });
-            })
-            .doOnError(error -> log.error("Error calling service {}: {}", url, error.getMessage()))
-            .onErrorResume(error -> Mono.just(Map.of("error", error.getMessage())));
+                // Straight to the upstream service when the route resolves, otherwise loop back through the gateway
+                Mono<Object> direct = directDispatch
+                    ? linqRouteDispatcher.dispatch(HttpMethod.valueOf(method), target, intent, request, apiKey)
+                    : Mono.empty();
+                return direct.switchIfEmpty(Mono.defer(() -> invokeThroughGateway(method, url, request, apiKey)));
+            });
+    }
+
+    private Mono<Object> invokeThroughGateway(String method, String url, LinqRequest request, String apiKey) {
+        log.debug("Making {} request to {} with API key present", method, url);
+
+        WebClient.RequestHeadersSpec<?> requestSpec = switch (method) {
+            case "GET" -> webClient.get().uri(url);
+            case "POST" -> webClient.post().uri(url)
+                    .bodyValue(request.getQuery().getParams());
+            case "PUT" -> webClient.put().uri(url)
+                    .bodyValue(request.getQuery().getParams());
+            case "DELETE" -> webClient.delete().uri(url);
+            default -> throw new IllegalArgumentException("Method not supported: " + method);
+        };
+
+        return requestSpec
+            .header("X-API-Key", apiKey)
+            .exchangeToMono(response -> {
+                if (response.statusCode().is2xxSuccessful()) {
+                    return response.bodyToMono(Object.class)
+                        .switchIfEmpty(Mono.just(Map.of("message", "Success but no content")));
+                } else {
+                    return response.bodyToMono(String.class)
+                        .flatMap(error -> Mono.error(new RuntimeException(
+                            "Service returned " + response.statusCode() + ": " + error)));
+                }
+            });
     }
 
     private Mono<String> getApiKeyFromContext() {
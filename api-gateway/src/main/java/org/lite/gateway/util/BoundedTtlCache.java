@@ -0,0 +1,91 @@
+package org.lite.gateway.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Small in-process cache with a per entry expiry and a hard size bound.
+ * Reads are a single map lookup. When the bound is hit, expired entries are purged first and then
+ * arbitrary entries are evicted until the cache is back under its limit, so memory stays bounded even under a flood of keys.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public BoundedTtlCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    // Value if present and not expired, null otherwise
+    public V get(K key) {
+        Entry<V> entry = getEntry(key);
+        return entry != null ? entry.value() : null;
+    }
+
+    // Entry if present and not expired, callers that refresh ahead of expiry look at the timestamps themselves
+    public Entry<V> getEntry(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        long now = System.currentTimeMillis();
+        if (expiresAtMillis <= now) {
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, new Entry<>(value, now, expiresAtMillis));
+        if (entries.size() > maxSize) {
+            evict(now);
+        }
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        // one thread cleans up, the others just go on, the bound may be exceeded briefly
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            entries.values().removeIf(entry -> entry.isExpired(now));
+            Iterator<K> keys = entries.keySet().iterator();
+            while (entries.size() > maxSize && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    public record Entry<V>(V value, long createdAtMillis, long expiresAtMillis) {
+        public boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+    }
+}
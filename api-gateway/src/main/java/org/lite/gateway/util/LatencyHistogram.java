@@ -0,0 +1,159 @@
+package org.lite.gateway.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Log-linear latency histogram in milliseconds, the same layout HdrHistogram uses: every power of two range is split
+ * into 16 equal sub-buckets, so any recorded value is off by at most 1/16 of itself and values below 16ms are exact.
+ * Fixed layout and mergeable by adding the counts, so a rollup keeps one per time bucket and a query adds up any number
+ * of them at a cost that does not depend on how many requests they counted.
+ * Stored sparsely as "h<index>" -> count, which lets mongodb merge concurrent writers with $inc.
+ */
+public class LatencyHistogram {
+
+    public static final String BUCKET_PREFIX = "h";
+    // Power of two buckets written before the log-linear layout, still merged so older rollups keep their percentiles
+    private static final String LEGACY_BUCKET_PREFIX = "b";
+    private static final int LEGACY_BUCKET_COUNT = 40;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // octave 0 holds 0 to 15 exactly, octave k >= 1 holds [16 << (k - 1), 16 << k)
+    private static final int OCTAVE_COUNT = 64 - SUB_BUCKET_BITS;
+
+    // Octaves are allocated on first use, a typical endpoint only touches a handful of them
+    private final long[][] counts = new long[OCTAVE_COUNT][];
+    private long totalCount;
+
+    public void record(long durationMillis) {
+        add(bucketIndex(durationMillis), 1);
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int octave = 0; octave < OCTAVE_COUNT; octave++) {
+            long[] otherCounts = other.counts[octave];
+            if (otherCounts == null) {
+                continue;
+            }
+            long[] octaveCounts = octave(octave);
+            for (int i = 0; i < SUB_BUCKET_COUNT; i++) {
+                octaveCounts[i] += otherCounts[i];
+            }
+        }
+        totalCount += other.totalCount;
+    }
+
+    public void merge(Map<String, Long> buckets) {
+        if (buckets == null) {
+            return;
+        }
+        buckets.forEach((key, count) -> {
+            if (count == null || count <= 0) {
+                return;
+            }
+            try {
+                if (key.startsWith(BUCKET_PREFIX)) {
+                    int index = Integer.parseInt(key, BUCKET_PREFIX.length(), key.length(), 10);
+                    if (index >= 0 && index < OCTAVE_COUNT * SUB_BUCKET_COUNT) {
+                        add(index, count);
+                    }
+                } else if (key.startsWith(LEGACY_BUCKET_PREFIX)) {
+                    // legacy bucket i held (2^(i-1), 2^i], counted at its upper bound
+                    int index = Integer.parseInt(key, LEGACY_BUCKET_PREFIX.length(), key.length(), 10);
+                    if (index >= 0 && index < LEGACY_BUCKET_COUNT) {
+                        add(bucketIndex(1L << index), count);
+                    }
+                }
+            } catch (NumberFormatException ignored) {
+                // not one of ours
+            }
+        });
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    // Non empty buckets only
+    public Map<String, Long> toBuckets() {
+        Map<String, Long> buckets = new HashMap<>();
+        for (int octave = 0; octave < OCTAVE_COUNT; octave++) {
+            long[] octaveCounts = counts[octave];
+            if (octaveCounts == null) {
+                continue;
+            }
+            for (int i = 0; i < SUB_BUCKET_COUNT; i++) {
+                if (octaveCounts[i] > 0) {
+                    buckets.put(BUCKET_PREFIX + (octave * SUB_BUCKET_COUNT + i), octaveCounts[i]);
+                }
+            }
+        }
+        return buckets;
+    }
+
+    // Interpolated within the bucket holding the rank, and clamped to the observed min and max
+    public double percentile(double percentile, double min, double max) {
+        if (totalCount == 0) {
+            return 0.0;
+        }
+        double rank = percentile * (totalCount - 1);
+        long seen = 0;
+        for (int octave = 0; octave < OCTAVE_COUNT; octave++) {
+            long[] octaveCounts = counts[octave];
+            if (octaveCounts == null) {
+                continue;
+            }
+            for (int i = 0; i < SUB_BUCKET_COUNT; i++) {
+                long count = octaveCounts[i];
+                if (count == 0) {
+                    continue;
+                }
+                if (rank < seen + count) {
+                    long width = bucketWidth(octave);
+                    double lower = bucketLowerBound(octave, i);
+                    double value = width == 1 ? lower : lower + width * ((rank - seen + 0.5) / count);
+                    return Math.max(min, Math.min(max, value));
+                }
+                seen += count;
+            }
+        }
+        return max;
+    }
+
+    public static String bucketKey(long durationMillis) {
+        return BUCKET_PREFIX + bucketIndex(durationMillis);
+    }
+
+    private void add(int index, long count) {
+        octave(index / SUB_BUCKET_COUNT)[index % SUB_BUCKET_COUNT] += count;
+        totalCount += count;
+    }
+
+    private long[] octave(int octave) {
+        long[] octaveCounts = counts[octave];
+        if (octaveCounts == null) {
+            octaveCounts = new long[SUB_BUCKET_COUNT];
+            counts[octave] = octaveCounts;
+        }
+        return octaveCounts;
+    }
+
+    private static int bucketIndex(long durationMillis) {
+        if (durationMillis < SUB_BUCKET_COUNT) {
+            return (int) Math.max(0, durationMillis);
+        }
+        // the top SUB_BUCKET_BITS + 1 bits pick the octave and the sub-bucket within it
+        int octave = 64 - Long.numberOfLeadingZeros(durationMillis) - SUB_BUCKET_BITS;
+        int subBucket = (int) (durationMillis >>> (octave - 1)) - SUB_BUCKET_COUNT;
+        return octave * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long bucketWidth(int octave) {
+        return octave == 0 ? 1 : 1L << (octave - 1);
+    }
+
+    private static double bucketLowerBound(int octave, int subBucket) {
+        return octave == 0 ? subBucket : (double) ((long) (SUB_BUCKET_COUNT + subBucket) << (octave - 1));
+    }
+}
@@ -0,0 +1,93 @@
+package org.lite.gateway.util;
+
+import org.lite.gateway.model.MetricPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed size time series of one metric, kept in two primitive arrays.
+ * Appending overwrites the oldest point once the buffer is full, so it is O(1) and never allocates,
+ * and reads walk the arrays in place instead of materializing objects unless the caller asks for them.
+ * Running statistics of the window are updated on every append, see StreamingStats.
+ */
+public class MetricRingBuffer {
+
+    private final long[] timestamps;
+    private final double[] values;
+    // index the next point is written to
+    private int head;
+    private int size;
+    private final StreamingStats stats;
+
+    public MetricRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+        this.stats = new StreamingStats(capacity);
+    }
+
+    public synchronized void append(long timestamp, double value) {
+        stats.add(value, size == values.length ? values[head] : Double.NaN);
+        timestamps[head] = timestamp;
+        values[head] = value;
+        head = (head + 1) % values.length;
+        if (size < values.length) {
+            size++;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    // offset 0 is the latest value, 1 the one before it and so on, NaN if there is no such point
+    public synchronized double valueFromLatest(int offset) {
+        if (offset < 0 || offset >= size) {
+            return Double.NaN;
+        }
+        return values[index(size - 1 - offset)];
+    }
+
+    // Consistent view of the window's statistics, O(1) apart from copying the outliers
+    public synchronized StatsSnapshot statsSnapshot() {
+        return new StatsSnapshot(size, stats.mean(), stats.stdDev(), stats.median(), stats.p95(), stats.p99(),
+            stats.forecast(), valueFromLatest(0), valueFromLatest(1), stats.outliers());
+    }
+
+    // Oldest to newest, called under the buffer's lock so the consumer must not block
+    public synchronized void forEach(PointConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            int index = index(i);
+            consumer.accept(timestamps[index], values[index]);
+        }
+    }
+
+    // Oldest to newest, for the REST endpoints that expose the raw history
+    public synchronized List<MetricPoint> toPoints(String metric) {
+        List<MetricPoint> points = new ArrayList<>(size);
+        forEach((timestamp, value) -> points.add(new MetricPoint(metric, value, timestamp)));
+        return points;
+    }
+
+    // position 0 is the oldest point
+    private int index(int position) {
+        int start = size < values.length ? 0 : head;
+        return (start + position) % values.length;
+    }
+
+    public record StatsSnapshot(int count, double mean, double stdDev, double median, double p95, double p99,
+                                double forecast, double latest, double previous, List<Double> outliers) {
+    }
+
+    @FunctionalInterface
+    public interface PointConsumer {
+        void accept(long timestamp, double value);
+    }
+}
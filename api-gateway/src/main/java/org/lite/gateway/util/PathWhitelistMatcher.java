@@ -0,0 +1,100 @@
+package org.lite.gateway.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.springframework.web.util.pattern.PatternParseException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable, precompiled view of the whitelisted path patterns.
+ * Literal paths go into a hash set, everything else is parsed once into a {@link PathPattern}.
+ * A new instance is built whenever the whitelist changes and swapped in as a whole, so lookups never lock.
+ */
+@Slf4j
+public final class PathWhitelistMatcher {
+
+    public static final PathWhitelistMatcher EMPTY = new PathWhitelistMatcher(List.of());
+
+    // One shared matcher for the rare patterns PathPattern can't parse (i.e. "/**/foo"), AntPathMatcher is thread safe
+    private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
+
+    private final Set<String> exactPaths;
+    private final List<PathPattern> pathPatterns;
+    private final List<String> antPatterns;
+
+    public PathWhitelistMatcher(Collection<String> patterns) {
+        Set<String> exact = new HashSet<>();
+        List<PathPattern> compiled = new ArrayList<>();
+        List<String> ant = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isBlank()) {
+                continue;
+            }
+            if (!ANT_PATH_MATCHER.isPattern(pattern)) {
+                exact.add(pattern);
+                continue;
+            }
+            try {
+                compiled.add(PathPatternParser.defaultInstance.parse(pattern));
+            } catch (PatternParseException e) {
+                log.warn("Whitelist pattern {} is not a valid PathPattern, falling back to AntPathMatcher: {}", pattern, e.getMessage());
+                ant.add(pattern);
+            }
+        }
+        // more specific patterns first, so the common literal prefixes are resolved early
+        compiled.sort(PathPattern.SPECIFICITY_COMPARATOR);
+        this.exactPaths = Set.copyOf(exact);
+        this.pathPatterns = List.copyOf(compiled);
+        this.antPatterns = List.copyOf(ant);
+    }
+
+    // Preferred variant, the request path is already parsed by the server so there is nothing to allocate
+    public boolean matches(PathContainer path) {
+        String value = path.value();
+        if (exactPaths.contains(value)) {
+            return true;
+        }
+        for (PathPattern pathPattern : pathPatterns) {
+            if (pathPattern.matches(path)) {
+                return true;
+            }
+        }
+        return matchesAnt(value);
+    }
+
+    public boolean matches(String path) {
+        if (exactPaths.contains(path)) {
+            return true;
+        }
+        if (!pathPatterns.isEmpty()) {
+            PathContainer pathContainer = PathContainer.parsePath(path);
+            for (PathPattern pathPattern : pathPatterns) {
+                if (pathPattern.matches(pathContainer)) {
+                    return true;
+                }
+            }
+        }
+        return matchesAnt(path);
+    }
+
+    public int size() {
+        return exactPaths.size() + pathPatterns.size() + antPatterns.size();
+    }
+
+    private boolean matchesAnt(String path) {
+        for (String antPattern : antPatterns) {
+            if (ANT_PATH_MATCHER.match(antPattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
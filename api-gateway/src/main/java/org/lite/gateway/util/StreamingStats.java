@@ -0,0 +1,235 @@
+package org.lite.gateway.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Statistics of a sliding window of values, updated in O(1) as values come in and go out, so reading them never
+ * walks the window.
+ * Mean and standard deviation are exact (Welford, with the evicted value taken back out), the median and percentiles
+ * are P2 estimates over the last one to two windows, and the forecast is an exponentially weighted moving average.
+ * Not thread safe, the owning MetricRingBuffer guards it with its own lock.
+ */
+public class StreamingStats {
+
+    private static final double FORECAST_ALPHA = 0.3;
+    private static final double OUTLIER_STD_DEVS = 2.0;
+
+    private final int windowSize;
+
+    // Welford over the window
+    private long count;
+    private double mean;
+    private double m2;
+
+    private double forecast = Double.NaN;
+
+    // Two generations, each covering one window's worth of values, so old values age out of the quantiles too
+    private QuantileEstimators current = new QuantileEstimators();
+    private QuantileEstimators previous;
+
+    // Values that were more than 2 standard deviations off when they arrived, dropped again once they leave the window
+    private final Deque<Outlier> outliers = new ArrayDeque<>();
+    private long sequence;
+
+    public StreamingStats(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    // evicted is the value that just left the window, NaN if the window wasn't full yet
+    public void add(double value, double evicted) {
+        if (!Double.isNaN(evicted)) {
+            remove(evicted);
+        }
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        forecast = Double.isNaN(forecast) ? value : FORECAST_ALPHA * value + (1 - FORECAST_ALPHA) * forecast;
+
+        current.add(value);
+        if (current.count >= windowSize) {
+            previous = current;
+            current = new QuantileEstimators();
+        }
+
+        sequence++;
+        while (!outliers.isEmpty() && outliers.peekFirst().sequence() <= sequence - windowSize) {
+            outliers.pollFirst();
+        }
+        if (count > 1 && Math.abs(value - mean) > OUTLIER_STD_DEVS * stdDev()) {
+            outliers.addLast(new Outlier(sequence, value));
+        }
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    // Population standard deviation, same as the batch calculation it replaces
+    public double stdDev() {
+        return count > 0 ? Math.sqrt(Math.max(0, m2 / count)) : 0.0;
+    }
+
+    public double forecast() {
+        return Double.isNaN(forecast) ? 0.0 : forecast;
+    }
+
+    public double median() {
+        return quantiles().median.value();
+    }
+
+    public double p95() {
+        return quantiles().p95.value();
+    }
+
+    public double p99() {
+        return quantiles().p99.value();
+    }
+
+    public List<Double> outliers() {
+        List<Double> values = new ArrayList<>(outliers.size());
+        outliers.forEach(outlier -> values.add(outlier.value()));
+        return values;
+    }
+
+    private void remove(double value) {
+        if (count <= 1) {
+            count = 0;
+            mean = 0;
+            m2 = 0;
+            return;
+        }
+        double delta = value - mean;
+        mean -= delta / (count - 1);
+        m2 -= delta * (value - mean);
+        count--;
+    }
+
+    // the fresh generation once it has seen half a window, until then the last full one
+    private QuantileEstimators quantiles() {
+        return previous == null || current.count >= windowSize / 2 ? current : previous;
+    }
+
+    private record Outlier(long sequence, double value) {
+    }
+
+    private static final class QuantileEstimators {
+        private final P2Quantile median = new P2Quantile(0.5);
+        private final P2Quantile p95 = new P2Quantile(0.95);
+        private final P2Quantile p99 = new P2Quantile(0.99);
+        private int count;
+
+        private void add(double value) {
+            median.add(value);
+            p95.add(value);
+            p99.add(value);
+            count++;
+        }
+    }
+
+    /**
+     * P2 quantile estimator (Jain and Chlamtac), five markers and constant memory no matter how many values it sees.
+     * Exact while it has seen fewer than five values.
+     */
+    static final class P2Quantile {
+        private final double p;
+        private final double[] heights = new double[5];
+        private final double[] positions = new double[5];
+        private final double[] desiredPositions = new double[5];
+        private final double[] increments;
+        private int count;
+
+        P2Quantile(double p) {
+            this.p = p;
+            this.increments = new double[]{0, p / 2, p, (1 + p) / 2, 1};
+        }
+
+        void add(double value) {
+            if (count < 5) {
+                heights[count++] = value;
+                if (count == 5) {
+                    Arrays.sort(heights);
+                    for (int i = 0; i < 5; i++) {
+                        positions[i] = i + 1;
+                    }
+                    desiredPositions[0] = 1;
+                    desiredPositions[1] = 1 + 2 * p;
+                    desiredPositions[2] = 1 + 4 * p;
+                    desiredPositions[3] = 3 + 2 * p;
+                    desiredPositions[4] = 5;
+                }
+                return;
+            }
+            count++;
+
+            // cell the value falls in, stretching the outer markers if needed
+            int cell;
+            if (value < heights[0]) {
+                heights[0] = value;
+                cell = 0;
+            } else if (value >= heights[4]) {
+                heights[4] = value;
+                cell = 3;
+            } else {
+                cell = 0;
+                while (value >= heights[cell + 1]) {
+                    cell++;
+                }
+            }
+            for (int i = cell + 1; i < 5; i++) {
+                positions[i]++;
+            }
+            for (int i = 0; i < 5; i++) {
+                desiredPositions[i] += increments[i];
+            }
+
+            // move the middle markers towards where they should be
+            for (int i = 1; i <= 3; i++) {
+                double offset = desiredPositions[i] - positions[i];
+                if ((offset >= 1 && positions[i + 1] - positions[i] > 1)
+                        || (offset <= -1 && positions[i - 1] - positions[i] < -1)) {
+                    int step = offset >= 0 ? 1 : -1;
+                    double candidate = parabolic(i, step);
+                    heights[i] = heights[i - 1] < candidate && candidate < heights[i + 1]
+                            ? candidate
+                            : linear(i, step);
+                    positions[i] += step;
+                }
+            }
+        }
+
+        double value() {
+            if (count == 0) {
+                return 0.0;
+            }
+            if (count >= 5) {
+                return heights[2];
+            }
+            double[] sorted = Arrays.copyOf(heights, count);
+            Arrays.sort(sorted);
+            double rank = p * (count - 1);
+            int lower = (int) Math.floor(rank);
+            int upper = (int) Math.ceil(rank);
+            return sorted[lower] + (sorted[upper] - sorted[lower]) * (rank - lower);
+        }
+
+        private double parabolic(int i, int step) {
+            return heights[i] + step / (positions[i + 1] - positions[i - 1])
+                    * ((positions[i] - positions[i - 1] + step) * (heights[i + 1] - heights[i]) / (positions[i + 1] - positions[i])
+                    + (positions[i + 1] - positions[i] - step) * (heights[i] - heights[i - 1]) / (positions[i] - positions[i - 1]));
+        }
+
+        private double linear(int i, int step) {
+            return heights[i] + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.lite.gateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketBoundaries() {
+        assertEquals("h0", LatencyHistogram.bucketKey(-5));
+        assertEquals("h15", LatencyHistogram.bucketKey(15));
+        assertEquals("h16", LatencyHistogram.bucketKey(16));
+        assertEquals("h31", LatencyHistogram.bucketKey(31));
+        assertEquals("h32", LatencyHistogram.bucketKey(32));
+        // 32 and 33 share a bucket of width 2
+        assertEquals("h32", LatencyHistogram.bucketKey(33));
+        assertEquals("h959", LatencyHistogram.bucketKey(Long.MAX_VALUE));
+    }
+
+    @Test
+    void percentilesAreWithinOneSixteenth() {
+        Random random = new Random(3);
+        long[] values = new long[20_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // log-uniform between 1ms and about 60s
+            values[i] = (long) Math.exp(random.nextDouble() * Math.log(60_000));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[]{0.5, 0.9, 0.95, 0.99, 0.999}) {
+            double exact = values[(int) Math.round(percentile * (values.length - 1))];
+            double estimate = histogram.percentile(percentile, values[0], values[values.length - 1]);
+            assertTrue(Math.abs(estimate - exact) <= exact / 16,
+                    "p" + percentile + " estimate " + estimate + " vs exact " + exact);
+        }
+    }
+
+    @Test
+    void mergedHistogramsMatchOneHistogram() {
+        LatencyHistogram all = new LatencyHistogram();
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (long value = 0; value < 5_000; value += 7) {
+            all.record(value);
+            (value % 2 == 0 ? first : second).record(value);
+        }
+
+        LatencyHistogram fromBuckets = new LatencyHistogram();
+        fromBuckets.merge(first.toBuckets());
+        fromBuckets.merge(second);
+
+        assertEquals(all.getTotalCount(), fromBuckets.getTotalCount());
+        assertEquals(all.toBuckets(), fromBuckets.toBuckets());
+    }
+
+    @Test
+    void legacyBucketsAreMergedAtTheirUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.merge(Map.of("b7", 3L, "h5", 1L, "x1", 4L, "hfoo", 2L));
+
+        assertEquals(4, histogram.getTotalCount());
+        assertEquals(Map.of("h5", 1L, LatencyHistogram.bucketKey(128), 3L), histogram.toBuckets());
+        // legacy bucket 7 held (64, 128], its values now sit in the bucket starting at 128
+        double median = histogram.percentile(0.5, 0, 1000);
+        assertTrue(median >= 128 && median < 136, "median " + median);
+    }
+}
@@ -0,0 +1,88 @@
+package org.lite.gateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamingStatsTest {
+
+    @Test
+    void meanAndStdDevMatchBatchComputationAfterEviction() {
+        int windowSize = 50;
+        StreamingStats stats = new StreamingStats(windowSize);
+        Deque<Double> window = new ArrayDeque<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            double value = 100 + random.nextGaussian() * 25;
+            double evicted = Double.NaN;
+            window.addLast(value);
+            if (window.size() > windowSize) {
+                evicted = window.pollFirst();
+            }
+            stats.add(value, evicted);
+
+            double mean = window.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+            double variance = window.stream().mapToDouble(v -> (v - mean) * (v - mean)).sum() / window.size();
+            assertEquals(window.size(), stats.count());
+            assertEquals(mean, stats.mean(), 1e-9);
+            assertEquals(Math.sqrt(variance), stats.stdDev(), 1e-6);
+        }
+    }
+
+    @Test
+    void evictingTheLastValueResetsTheWindow() {
+        StreamingStats stats = new StreamingStats(1);
+        stats.add(5, Double.NaN);
+        stats.add(9, 5);
+
+        assertEquals(1, stats.count());
+        assertEquals(9, stats.mean(), 1e-12);
+        assertEquals(0, stats.stdDev(), 1e-12);
+    }
+
+    @Test
+    void p2IsExactWithFewerThanFiveValues() {
+        StreamingStats.P2Quantile median = new StreamingStats.P2Quantile(0.5);
+        median.add(3);
+        median.add(1);
+        median.add(2);
+
+        assertEquals(2, median.value(), 1e-12);
+    }
+
+    @Test
+    void p2EstimatesUniformQuantiles() {
+        StreamingStats.P2Quantile median = new StreamingStats.P2Quantile(0.5);
+        StreamingStats.P2Quantile p95 = new StreamingStats.P2Quantile(0.95);
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            double value = random.nextDouble() * 1000;
+            median.add(value);
+            p95.add(value);
+        }
+
+        assertEquals(500, median.value(), 20);
+        assertEquals(950, p95.value(), 20);
+    }
+
+    @Test
+    void p2EstimatesNormalQuantiles() {
+        StreamingStats.P2Quantile median = new StreamingStats.P2Quantile(0.5);
+        StreamingStats.P2Quantile p95 = new StreamingStats.P2Quantile(0.95);
+        Random random = new Random(11);
+        for (int i = 0; i < 10_000; i++) {
+            double value = 200 + random.nextGaussian() * 40;
+            median.add(value);
+            p95.add(value);
+        }
+
+        // 1.645 standard deviations above the mean
+        assertEquals(200, median.value(), 2);
+        assertEquals(265.8, p95.value(), 4);
+    }
+}
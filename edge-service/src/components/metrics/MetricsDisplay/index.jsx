@@ -14,6 +14,7 @@ function MetricsDisplay() {
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
   const [services, setServices] = useState([]);
+  const [truncated, setTruncated] = useState(false);
 
   useEffect(() => {
     let mounted = true;
@@ -27,8 +28,9 @@ function MetricsDisplay() {
           endDate: formatDateForApi(endDate)
         };
 
-        const data = await getApiMetrics(params);
+        const { metrics: data, truncated: partial } = await getApiMetrics(params);
         if (mounted) {
+          setTruncated(partial);
           data.sort((a, b) => new Date(a.timestamp) - new Date(b.timestamp));
           setMetrics(data);
           setFilteredMetrics(data);
@@ -79,7 +81,8 @@ function MetricsDisplay() {
 
     // Fetch filtered data from API
     getApiMetrics(params)
-      .then(data => {
+      .then(({ metrics: data, truncated: partial }) => {
+        setTruncated(partial);
         setFilteredMetrics(data);
       })
       .catch(err => {
@@ -99,6 +102,11 @@ function MetricsDisplay() {
   return (
     <div className="metrics-container">
       <h1>API Metrics Dashboard</h1>
+      {truncated && (
+        <Alert severity="warning">
+          Showing the {filteredMetrics.length} most recent metrics only, narrow the date range to see older ones.
+        </Alert>
+      )}
       <div className="metrics-content">
         <div className="section filter-section">
           <MetricsFilter 
@@ -2,7 +2,12 @@ import axios from 'axios';
 
 const API_GATEWAY_URL = import.meta.env.VITE_API_GATEWAY_URL;
 
-export const getApiMetrics = async (params = {}) => {
+// The dashboard never reads more than this, older metrics are reported as truncated
+const METRICS_PAGE_SIZE = 1000;
+const METRICS_MAX_PAGES = 5;
+
+// Newest first, follows X-Next-Cursor for at most maxPages pages, truncated tells whether older metrics were left out
+export const getApiMetrics = async (params = {}, { maxPages = METRICS_MAX_PAGES } = {}) => {
     try {
         // Ensure dates are in ISO format
         if (params.startDate) {
@@ -12,8 +17,18 @@ export const getApiMetrics = async (params = {}) => {
             params.endDate = new Date(params.endDate).toISOString();
         }
 
-        const response = await axios.get(`${API_GATEWAY_URL}/api/metrics`, { params });
-        return response.data;
+        const metrics = [];
+        let cursor;
+        let pages = 0;
+        do {
+            const response = await axios.get(`${API_GATEWAY_URL}/api/metrics`, {
+                params: { limit: METRICS_PAGE_SIZE, ...params, ...(cursor && { cursor }) }
+            });
+            metrics.push(...response.data);
+            cursor = response.headers['x-next-cursor'];
+            pages++;
+        } while (cursor && pages < maxPages);
+        return { metrics, truncated: Boolean(cursor) };
     } catch (error) {
         console.error('Error fetching API metrics:', error);
         throw error;